@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.listeners.ItemListener;
+
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildTrendCache;
+import jenkins.plugins.clangscanbuild.reports.ClangBuildGraphCache;
+
+/**
+ * Drops the cached trend points and graphs of a project when it is deleted, renamed or moved.  The caches are
+ * keyed by the full name of the project, so a project created or renamed onto that name later must not get them.
+ * 
+ * Jenkins reports a rename through onLocationChanged as well as onRenamed, the full names are only passed to
+ * onLocationChanged.
+ */
+@Extension
+public class ClangScanBuildItemListener extends ItemListener {
+
+	@Override
+	public void onDeleted( Item item ){
+		invalidate( item.getFullName() );
+	}
+
+	@Override
+	public void onLocationChanged( Item item, String oldFullName, String newFullName ){
+		invalidate( oldFullName );
+		invalidate( newFullName );
+	}
+
+	private void invalidate( String fullName ){
+		ClangScanBuildTrendCache.getInstance().invalidate( fullName );
+		ClangBuildGraphCache.getInstance().invalidate( fullName );
+	}
+
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses the HTML reports of a build on the master.  Every report.html is replaced by report.html.gz,
+ * which ClangScanBuildAction.doBrowse serves to the browser as it is or decompresses on the fly.
+ * 
+ * The gzip header written by java.util.zip carries no timestamp or file name, so identical reports compress
+ * to identical files and can still be shared through the ClangScanBuildReportStore.
+ */
+public class ClangScanBuildReportCompressor {
+
+	public static final String REPORT_SUFFIX = ".html";
+	public static final String GZIP_SUFFIX = ".gz";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private long uncompressedBytes;
+	private long compressedBytes;
+
+	/**
+	 * Compresses every HTML report below the folder that is not compressed yet.
+	 */
+	public void compress( File reportFolder ) throws IOException {
+		if( !reportFolder.isDirectory() ) return;
+
+		Files.walkFileTree( reportFolder.toPath(), new SimpleFileVisitor<Path>(){
+
+			@Override
+			public FileVisitResult visitFile( Path file, BasicFileAttributes attributes ) throws IOException {
+				if( attributes.isRegularFile() && file.getFileName().toString().endsWith( REPORT_SUFFIX ) ){
+					compressFile( file, attributes.size() );
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+		});
+	}
+
+	public long getUncompressedBytes(){
+		return uncompressedBytes;
+	}
+
+	public long getCompressedBytes(){
+		return compressedBytes;
+	}
+
+	private void compressFile( Path file, long size ) throws IOException {
+		Path compressedFile = file.resolveSibling( file.getFileName() + GZIP_SUFFIX );
+		Path temporaryFile = file.resolveSibling( file.getFileName() + GZIP_SUFFIX + ".tmp" );
+
+		InputStream in = Files.newInputStream( file );
+		try{
+			OutputStream out = new GZIPOutputStream( Files.newOutputStream( temporaryFile ), BUFFER_SIZE );
+			try{
+				byte[] buffer = new byte[ BUFFER_SIZE ];
+				int read;
+				while( ( read = in.read( buffer ) ) != -1 ){
+					out.write( buffer, 0, read );
+				}
+			}finally{
+				out.close();
+			}
+		}finally{
+			in.close();
+		}
+
+		Files.move( temporaryFile, compressedFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+		Files.delete( file );
+
+		uncompressedBytes += size;
+		compressedBytes += Files.size( compressedFile );
+	}
+
+}
@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild;
+
+import hudson.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Content-addressed store of the report files of a job.  Every distinct report body is kept once in the
+ * store, named by its SHA-1, and the report folders of the builds hold hard links to it.  Reports served
+ * from a build folder are therefore still plain files.
+ * 
+ * The link count of a stored file is its reference count: a stored file with a single link is no longer
+ * used by any build and is removed by collectGarbage.  The store is only used on file systems that
+ * support hard links and report link counts.
+ */
+public class ClangScanBuildReportStore {
+
+	private static final Logger LOGGER = Logger.getLogger( ClangScanBuildReportStore.class.getName() );
+
+	public static final String STORE_FOLDERNAME = "clangScanBuildReportStore";
+
+	private static final String LINK_COUNT_ATTRIBUTE = "unix:nlink";
+
+	private final Path storeFolder;
+
+	private int linkedFiles;
+	private int storedFiles;
+
+	public ClangScanBuildReportStore( File projectRootDir ){
+		this.storeFolder = new File( projectRootDir, STORE_FOLDERNAME ).toPath();
+	}
+
+	public boolean exists(){
+		return Files.isDirectory( storeFolder );
+	}
+
+	/**
+	 * Replaces every file in the report folder by a link to the stored file with the same content, adding
+	 * files to the store that are not in it yet.  Does nothing if the file system does not support it.
+	 */
+	public void deduplicate( File reportFolder ) throws IOException {
+		if( !reportFolder.isDirectory() ) return;
+
+		Files.createDirectories( storeFolder );
+		if( !isSupported() ){
+			LOGGER.log( Level.FINE, "Hard links are not supported in {0}, reports are not deduplicated", storeFolder );
+			return;
+		}
+
+		Files.walkFileTree( reportFolder.toPath(), new SimpleFileVisitor<Path>(){
+
+			@Override
+			public FileVisitResult visitFile( Path file, BasicFileAttributes attributes ) throws IOException {
+				if( attributes.isRegularFile() && getLinkCount( file ) == 1 ) link( file );
+				return FileVisitResult.CONTINUE;
+			}
+
+		});
+	}
+
+	/**
+	 * Removes the stored files that no build links to anymore.  Returns the number of removed files.
+	 */
+	public int collectGarbage() throws IOException {
+		if( !exists() || !isSupported() ) return 0;
+
+		int removed = 0;
+		DirectoryStream<Path> prefixes = Files.newDirectoryStream( storeFolder );
+		try{
+			for( Path prefix : prefixes ){
+				if( !Files.isDirectory( prefix ) ) continue;
+
+				DirectoryStream<Path> storedFiles = Files.newDirectoryStream( prefix );
+				try{
+					for( Path storedFile : storedFiles ){
+						if( getLinkCount( storedFile ) <= 1 ){
+							Files.deleteIfExists( storedFile );
+							removed++;
+						}
+					}
+				}finally{
+					storedFiles.close();
+				}
+			}
+		}finally{
+			prefixes.close();
+		}
+		return removed;
+	}
+
+	/**
+	 * Number of files replaced by a link to a file that was already stored.
+	 */
+	public int getLinkedFiles(){
+		return linkedFiles;
+	}
+
+	/**
+	 * Number of files added to the store.
+	 */
+	public int getStoredFiles(){
+		return storedFiles;
+	}
+
+	private void link( Path file ) throws IOException {
+		String digest = digest( file );
+		Path storedFile = storeFolder.resolve( digest.substring( 0, 2 ) ).resolve( digest );
+		Files.createDirectories( storedFile.getParent() );
+
+		// the link is created next to the file and renamed over it so the report is never missing
+		Path temporaryLink = file.resolveSibling( file.getFileName() + ".link" );
+		while( true ){
+			if( !Files.exists( storedFile ) ){
+				try{
+					Files.createLink( storedFile, file );
+					storedFiles++;
+					return;
+				}catch( FileAlreadyExistsException e ){
+					// another build of the job stored the same content in the meantime
+				}
+			}
+
+			Files.deleteIfExists( temporaryLink );
+			try{
+				Files.createLink( temporaryLink, storedFile );
+			}catch( NoSuchFileException e ){
+				// collectGarbage removed the stored file since it was looked up, it is stored again
+				continue;
+			}
+			Files.move( temporaryLink, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+			linkedFiles++;
+			return;
+		}
+	}
+
+	private boolean isSupported(){
+		try{
+			getLinkCount( storeFolder );
+			return true;
+		}catch( UnsupportedOperationException e ){
+			return false;
+		}catch( IllegalArgumentException e ){
+			return false;
+		}catch( IOException e ){
+			return false;
+		}
+	}
+
+	private int getLinkCount( Path path ) throws IOException {
+		return ( (Number) Files.getAttribute( path, LINK_COUNT_ATTRIBUTE ) ).intValue();
+	}
+
+	private String digest( Path file ) throws IOException {
+		InputStream contents = Files.newInputStream( file );
+		try{
+			MessageDigest digest = MessageDigest.getInstance( "SHA-1" );
+			byte[] buffer = new byte[ 8 * 1024 ];
+			int read;
+			while( ( read = contents.read( buffer ) ) != -1 ){
+				digest.update( buffer, 0, read );
+			}
+			return Util.toHexString( digest.digest() );
+		}catch( NoSuchAlgorithmException e ){
+			throw new IOException( e );
+		}finally{
+			contents.close();
+		}
+	}
+
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.AbstractBuild;
+import hudson.model.listeners.RunListener;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.plugins.clangscanbuild.actions.ClangScanBuildAction;
+
+/**
+ * Releases the stored reports of a build when the build is deleted.  The report folder is removed first,
+ * which drops the build's links into the ClangScanBuildReportStore, and then the stored reports no build
+ * links to anymore are removed.
+ */
+@Extension
+public class ClangScanBuildReportStoreCleaner extends RunListener<AbstractBuild<?,?>>{
+
+	private static final Logger LOGGER = Logger.getLogger( ClangScanBuildReportStoreCleaner.class.getName() );
+
+	@Override
+	public void onDeleted( AbstractBuild<?,?> build ){
+		ClangScanBuildAction action = build.getAction( ClangScanBuildAction.class );
+		if( action == null ) return;
+
+		ClangScanBuildReportStore store = new ClangScanBuildReportStore( build.getProject().getRootDir() );
+		if( !store.exists() ) return;
+
+		try{
+			FilePath reportFolder = ClangScanBuildUtils.locateClangScanBuildReportFolder( build, action.getOutputFolderName() );
+			reportFolder.deleteRecursive();
+			int removed = store.collectGarbage();
+			LOGGER.log( Level.FINE, "Removed {0} stored Clang scan-build reports after deleting {1}", new Object[]{ removed, build } );
+		}catch( IOException e ){
+			LOGGER.log( Level.WARNING, "Unable to release the stored Clang scan-build reports of " + build, e );
+		}catch( InterruptedException e ){
+			LOGGER.log( Level.WARNING, "Unable to release the stored Clang scan-build reports of " + build, e );
+		}
+	}
+
+}
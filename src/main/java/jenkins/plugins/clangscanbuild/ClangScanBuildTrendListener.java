@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild;
+
+import hudson.Extension;
+import hudson.model.AbstractBuild;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.plugins.clangscanbuild.actions.ClangScanBuildAction;
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildBugSummaryCache;
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildTrendCache;
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildTrendIndex;
+import jenkins.plugins.clangscanbuild.reports.GraphPoint;
+
+/**
+ * Records every completed build with a scan-build result in the ClangScanBuildTrendIndex, and deleted builds
+ * as well, and keeps the ClangScanBuildTrendCache current.  Builds are recorded once they completed, so a
+ * later publisher failing or the build being aborted does not leave a record behind that differs from the
+ * build.  The bug summary of a deleted build is dropped from the ClangScanBuildBugSummaryCache.
+ */
+@Extension
+public class ClangScanBuildTrendListener extends RunListener<AbstractBuild<?,?>>{
+
+	private static final Logger LOGGER = Logger.getLogger( ClangScanBuildTrendListener.class.getName() );
+
+	@Override
+	public void onCompleted( AbstractBuild<?,?> build, TaskListener listener ){
+		ClangScanBuildAction action = build.getAction( ClangScanBuildAction.class );
+		if( action == null ) return;
+
+		// the point is recorded in the index before it is cached, points read from the index meanwhile are not cached
+		GraphPoint point = ClangScanBuildTrendIndex.createPoint( build, action );
+		try{
+			ClangScanBuildTrendIndex.forProject( build.getProject() ).append( build.getProject(), point );
+		}catch( IOException e ){
+			listener.getLogger().println( "Unable to record the build in the Clang scan-build trend index: " + e.getMessage() );
+		}
+		ClangScanBuildTrendCache.getInstance().buildCompleted( build.getProject(), point );
+	}
+
+	@Override
+	public void onDeleted( AbstractBuild<?,?> build ){
+		if( build.getAction( ClangScanBuildAction.class ) == null ) return;
+
+		try{
+			ClangScanBuildTrendIndex.forProject( build.getProject() ).remove( build.getNumber() );
+		}catch( IOException e ){
+			LOGGER.log( Level.WARNING, "Unable to record the deletion of " + build + " in the Clang scan-build trend index", e );
+		}
+		ClangScanBuildTrendCache.getInstance().invalidate( build.getProject() );
+		ClangScanBuildBugSummaryCache.getInstance().remove( ClangScanBuildBugSummaryCache.keyFor( build ) );
+	}
+
+}
@@ -41,5 +41,19 @@ public class ClangScanBuildUtils{
 		if( build == null ) return null;
 		return new FilePath( new FilePath( build.getRootDir() ), folderName );
 	}
+
+	/**
+	 * Returns true if the If-None-Match header of a request names the entity tag, in which case the browser
+	 * already has the content and a 304 can be sent instead.
+	 */
+	public static boolean matchesETag( String ifNoneMatch, String eTag ){
+		if( ifNoneMatch == null ) return false;
+		for( String candidate : ifNoneMatch.split( "," ) ){
+			candidate = candidate.trim();
+			if( candidate.startsWith( "W/" ) ) candidate = candidate.substring( 2 );
+			if( candidate.equals( "*" ) || candidate.equals( eTag ) ) return true;
+		}
+		return false;
+	}
 	
 }
@@ -22,23 +22,48 @@
 package jenkins.plugins.clangscanbuild.actions;
 
 import hudson.FilePath;
+import hudson.Util;
+import hudson.model.Api;
 import hudson.model.Action;
 import hudson.model.ModelObject;
 import hudson.model.AbstractBuild;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 import java.util.logging.Logger;
 import static java.util.logging.Level.WARNING;
 import static java.util.logging.Level.FINEST;
+import static java.util.logging.Level.FINE;
 
+import jenkins.plugins.clangscanbuild.ClangScanBuildReportCompressor;
 import jenkins.plugins.clangscanbuild.ClangScanBuildUtils;
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildBug;
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildBugAggregates;
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildBugQuery;
 import jenkins.plugins.clangscanbuild.history.ClangScanBuildBugSummary;
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildBugSummaryCache;
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildBugSummaryFile;
 
+import javax.servlet.http.HttpServletResponse;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+import org.apache.commons.io.IOUtils;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerProxy;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
 
 /**
  * This contributes the menu to the left used to access reports/whatever from inside a 
@@ -47,6 +72,7 @@ import org.kohsuke.stapler.StaplerResponse;
  * 
  * @author Josh Kennedy
  */
+@ExportedBean
 public class ClangScanBuildAction implements Action, StaplerProxy, ModelObject{
 	private static final Logger LOGGER = Logger.getLogger(ClangScanBuildAction.class.getName());
 	
@@ -56,7 +82,24 @@ public class ClangScanBuildAction implements Action, StaplerProxy, ModelObject{
 	private boolean markBuildUnstable;
 	private int bugCount;
 	private String outputFolderName;
+	private ClangScanBuildBugAggregates aggregates;
 	
+	// reports of finished builds never change, browsers may keep them for a year
+	private static final long FINISHED_BUILD_REPORT_MAX_AGE = 365L * 24 * 60 * 60;
+
+	private static final int CONTENT_DIGEST_CACHE_SIZE = 10000;
+
+	private static final int DEFAULT_PAGE_SIZE = 100;
+	private static final int MAX_PAGE_SIZE = 1000;
+
+	@SuppressWarnings("serial")
+	private static final Map<String,String> CONTENT_DIGESTS = Collections.synchronizedMap( new LinkedHashMap<String,String>( 16, 0.75f, true ){
+		@Override
+		protected boolean removeEldestEntry( Map.Entry<String,String> eldest ){
+			return size() > CONTENT_DIGEST_CACHE_SIZE;
+		}
+	});
+
 	private Pattern APPROVED_REPORT_REQUEST_PATTERN = Pattern.compile( "[^.\\\\/]*\\.html|StaticAnalyzer.*\\.html" );
 	
 	public ClangScanBuildAction( AbstractBuild<?,?> build, int bugCount, boolean markBuildUnstable, 
@@ -76,6 +119,7 @@ public class ClangScanBuildAction implements Action, StaplerProxy, ModelObject{
 		return getBugCount() > bugThreshold;
 	}
 	
+	@Exported(name="bugThreshold",visibility=2)
 	public int getBugThreshhold(){
 		return bugThreshold;
 	}
@@ -84,18 +128,33 @@ public class ClangScanBuildAction implements Action, StaplerProxy, ModelObject{
 	 * The only thing stored in the actual builds in the bugCount and bugThreshold.  This was done in order to make the
 	 * build XML smaller to reduce load times.  The counts are need in order to render the trend charts.
 	 * 
-	 * This method actually loads the XML file that was generated at build time and placed alongside the clang output files
-	 * This XML contains the list of bugs and is used to render the report which links to the clang files.
+	 * This method actually loads the summary file that was generated at build time and placed alongside the clang output files
+	 * This file contains the list of bugs and is used to render the report which links to the clang files.  Builds recorded
+	 * by earlier versions of this plugin point to a bugSummary.xml file, which is still read.
 	 * 
 	 * DON'T CALL THIS UNLESS YOU NEED THE ACTUAL BUG SUMMARY
 	 */
 	public ClangScanBuildBugSummary loadBugSummary(){
 		if( bugSummaryXML == null ) return null;
+
+		// summaries are shared through a controller-wide cache, so a report viewed by the whole team is read once
+		ClangScanBuildBugSummaryCache cache = ClangScanBuildBugSummaryCache.getInstance();
+		String cacheKey = ClangScanBuildBugSummaryCache.keyFor( build );
+		ClangScanBuildBugSummary cachedSummary = cache.get( cacheKey );
+		if( cachedSummary != null ) return cachedSummary;
 		
 		try{
 		    if( bugSummaryXML.length() != 0 )
 		    {
-			    return (ClangScanBuildBugSummary) AbstractBuild.XSTREAM.fromXML( bugSummaryXML.read() );
+		    	InputStream in = bugSummaryXML.read();
+		    	try{
+		    		ClangScanBuildBugSummary summary = ClangScanBuildBugSummaryFile.read( in );
+		    		cache.put( cacheKey, summary );
+		    		LOGGER.log(FINE, "Loaded bug summary of {0}, summary cache hit rate {1}", new Object[]{ build, cache.getHitRate() });
+		    		return summary;
+		    	}finally{
+		    		in.close();
+		    	}
 		    }
 		    else
 		    {
@@ -110,9 +169,41 @@ public class ClangScanBuildAction implements Action, StaplerProxy, ModelObject{
 		}
 	}
 	
+	@Exported(visibility=2)
 	public int getBugCount(){
 		return bugCount;
 	}
+
+	/**
+	 * The remote API only exports the counts and aggregates of this action.  The bugs themselves are not
+	 * exported, since any request with a depth of one or more would then load the whole bug summary of every
+	 * build it lists; use {@link #doNdjson} to fetch all bugs or {@link #doBugs} to fetch them one page at a time.
+	 * 
+	 * http://[jenkins]/job/[job name]/[job number]/clangScanBuildBugs/api/json
+	 */
+	public Api getApi(){
+		return new Api( this );
+	}
+
+	/**
+	 * The bug counts by category and type and the new and fixed bug counts, computed when the build was
+	 * published.  Null for builds published by earlier versions of this plugin.
+	 */
+	@Exported(visibility=2)
+	public ClangScanBuildBugAggregates getAggregates(){
+		return aggregates;
+	}
+
+	public void setAggregates( ClangScanBuildBugAggregates aggregates ){
+		this.aggregates = aggregates;
+	}
+
+	/**
+	 * Name of the folder in the build directory holding the scan-build reports of this build.
+	 */
+	public String getOutputFolderName(){
+		return outputFolderName;
+	}
 	
 	/**
 	 * Indicates which icon should be displayed next to the link
@@ -150,6 +241,85 @@ public class ClangScanBuildAction implements Action, StaplerProxy, ModelObject{
 		return this;
 	}
 	
+	/**
+	 * Serves one page of the bug table as JSON.  The page is fetched by the bug table as the user scrolls, so
+	 * only the rows on screen are ever sent to the browser.  The summary keeps the sorted and filtered bugs,
+	 * so the following pages are sliced from them.
+	 * 
+	 * http://[jenkins]/job/[job name]/[job number]/clangScanBuildBugs/bugs?start=0&limit=100&sort=file&order=asc&filter=leak
+	 */
+	public void doBugs( StaplerRequest req, StaplerResponse rsp, @QueryParameter int start, @QueryParameter int limit,
+			@QueryParameter String sort, @QueryParameter String order, @QueryParameter String filter ) throws IOException {
+		ClangScanBuildBugSummary summary = loadBugSummary();
+		ClangScanBuildBugQuery query = new ClangScanBuildBugQuery( sort, "desc".equals( order ), filter );
+		List<ClangScanBuildBug> bugs = summary == null ? Collections.<ClangScanBuildBug>emptyList() : summary.query( query );
+
+		int from = Math.max( 0, Math.min( start, bugs.size() ) );
+		int to = Math.min( bugs.size(), from + ( limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min( limit, MAX_PAGE_SIZE ) ) );
+
+		JSONArray rows = new JSONArray();
+		for( ClangScanBuildBug bug : bugs.subList( from, to ) ){
+			rows.add( toJson( bug ) );
+		}
+
+		JSONObject page = new JSONObject();
+		page.put( "total", summary == null ? 0 : summary.getBugCount() );
+		page.put( "matches", bugs.size() );
+		page.put( "start", from );
+		page.put( "rows", rows );
+
+		rsp.setContentType( "application/json;charset=UTF-8" );
+		rsp.setHeader( "Cache-Control", "no-cache" );
+		rsp.getWriter().print( page.toString() );
+	}
+
+	/**
+	 * Streams all bugs as newline delimited JSON, one bug per line.  Bugs are written as they are read from the
+	 * summary file, so even very large summaries are never held in memory as a whole to answer the request.
+	 * 
+	 * http://[jenkins]/job/[job name]/[job number]/clangScanBuildBugs/ndjson
+	 */
+	public void doNdjson( StaplerRequest req, StaplerResponse rsp ) throws IOException, InterruptedException {
+		rsp.setContentType( "application/x-ndjson;charset=UTF-8" );
+		rsp.setHeader( "Cache-Control", "no-cache" );
+		final Writer out = new OutputStreamWriter( rsp.getOutputStream(), "UTF-8" );
+		ClangScanBuildBugSummaryFile.BugVisitor writer = new ClangScanBuildBugSummaryFile.BugVisitor(){
+			public void visit( ClangScanBuildBug bug ) throws IOException {
+				out.write( toJson( bug ).toString() );
+				out.write( '\n' );
+			}
+		};
+
+		// a summary somebody else already loaded is written from memory instead of being read again
+		ClangScanBuildBugSummary summary = ClangScanBuildBugSummaryCache.getInstance().get( ClangScanBuildBugSummaryCache.keyFor( build ) );
+		if( summary != null ){
+			for( ClangScanBuildBug bug : summary.getBugs() ){
+				writer.visit( bug );
+			}
+		}else if( bugSummaryXML != null && bugSummaryXML.exists() && bugSummaryXML.length() != 0 ){
+			InputStream in = bugSummaryXML.read();
+			try{
+				ClangScanBuildBugSummaryFile.stream( in, writer );
+			}finally{
+				in.close();
+			}
+		}
+		out.flush();
+	}
+
+	private static JSONObject toJson( ClangScanBuildBug bug ){
+		JSONObject row = new JSONObject();
+		row.put( "category", Util.fixNull( bug.getBugCategory() ) );
+		row.put( "type", Util.fixNull( bug.getBugType() ) );
+		row.put( "file", Util.fixNull( bug.getSourceFile() ) );
+		row.put( "line", bug.getBugLine() );
+		row.put( "pathLength", bug.getBugPathLength() );
+		row.put( "description", Util.fixNull( bug.getBugDescription() ) );
+		row.put( "newBug", bug.isNewBug() );
+		row.put( "reportFile", Util.fixNull( bug.getReportFile() ) );
+		return row;
+	}
+
 	/**
 	 * This method is used to serve up report HTML files from the hidden build folder.  It essentially exposes
 	 * the reports to the web.
@@ -169,19 +339,78 @@ public class ClangScanBuildAction implements Action, StaplerProxy, ModelObject{
     	FilePath requestedFile = new FilePath( reports, trimFirstSlash( requestedPath ) );
     	
     	try{
-	    	if( !requestedFile.exists() ){
+	    	if( requestedFile.exists() ){
+	    		if( checkNotModified( req, rsp, requestedFile, "" ) ) return;
+	    		rsp.serveFile( req, requestedFile.toURI().toURL() );
+	    		return;
+	    	}
+
+	    	// reports stored compressed are served as they are when the browser accepts gzip
+	    	FilePath compressedFile = new FilePath( reports, trimFirstSlash( requestedPath ) + ClangScanBuildReportCompressor.GZIP_SUFFIX );
+	    	if( !compressedFile.exists() ){
 	    		LOGGER.log(FINEST, "Unable to locate report: %s", req.getRestOfPath());
 	    		rsp.sendError( 404 );
 	    		return;
 	    	}
-	    	rsp.serveFile( req, requestedFile.toURI().toURL() );
+	    	serveCompressedFile( req, rsp, compressedFile );
     	}catch( Exception e ){
     		LOGGER.log(FINEST, "FAILED TO SERVE FILE: %s -> %s", new Object[]{req.getRestOfPath(), e.getLocalizedMessage()});
     		rsp.sendError( 500 );
     	}
 
     }
+
+    private void serveCompressedFile( StaplerRequest req, StaplerResponse rsp, FilePath compressedFile ) throws IOException, InterruptedException {
+    	rsp.setHeader( "Vary", "Accept-Encoding" );
+
+    	// the gzipped and the decompressed report are different representations and need different entity tags
+    	String acceptEncoding = req.getHeader( "Accept-Encoding" );
+    	boolean gzip = acceptEncoding != null && acceptEncoding.contains( "gzip" );
+    	if( checkNotModified( req, rsp, compressedFile, gzip ? "-gzip" : "" ) ) return;
+
+    	rsp.setContentType( "text/html" );
+    	InputStream in = compressedFile.read();
+    	try{
+	    	if( gzip ){
+	    		rsp.setHeader( "Content-Encoding", "gzip" );
+	    		rsp.setContentLength( (int) compressedFile.length() );
+	    	}else{
+	    		in = new GZIPInputStream( in );
+	    	}
+	    	IOUtils.copy( in, rsp.getOutputStream() );
+    	}finally{
+    		IOUtils.closeQuietly( in );
+    	}
+    }
     
+    /**
+     * Reports do not change once the build has finished, so they get a strong entity tag derived from their
+     * content and may be cached by the browser.  Returns true, after sending a 304, if the browser already
+     * has the report.
+     */
+    private boolean checkNotModified( StaplerRequest req, StaplerResponse rsp, FilePath file, String variant ) throws IOException, InterruptedException {
+    	String eTag = "\"" + getContentDigest( file ) + variant + "\"";
+    	rsp.setHeader( "ETag", eTag );
+    	rsp.setHeader( "Cache-Control", build.isBuilding() ? "no-cache" : "private, max-age=" + FINISHED_BUILD_REPORT_MAX_AGE );
+
+    	if( !ClangScanBuildUtils.matchesETag( req.getHeader( "If-None-Match" ), eTag ) ) return false;
+    	rsp.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+    	return true;
+    }
+
+    /**
+     * The digest is remembered for the file's path, size and modification time so a report is hashed only once.
+     */
+    private String getContentDigest( FilePath file ) throws IOException, InterruptedException {
+    	String key = file.getRemote() + ":" + file.length() + ":" + file.lastModified();
+    	String digest = CONTENT_DIGESTS.get( key );
+    	if( digest == null ){
+    		digest = file.digest();
+    		CONTENT_DIGESTS.put( key, digest );
+    	}
+    	return digest;
+    }
+
     private String trimFirstSlash( String path ){
     	if( path == null ) return null;
     	if( !path.startsWith("/") ) return path.trim();
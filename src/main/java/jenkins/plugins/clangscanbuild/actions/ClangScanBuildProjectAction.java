@@ -29,10 +29,13 @@ import java.io.IOException;
 import java.util.List;
 
 import jenkins.plugins.clangscanbuild.ClangScanBuildUtils;
-import jenkins.plugins.clangscanbuild.history.ClangScanBuildHistoryGatherer;
-import jenkins.plugins.clangscanbuild.history.ClangScanBuildHistoryGathererImpl;
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildTrendCache;
 import jenkins.plugins.clangscanbuild.reports.ClangBuildGraph;
+import jenkins.plugins.clangscanbuild.reports.ClangBuildGraphCache;
 import jenkins.plugins.clangscanbuild.reports.GraphPoint;
+import jenkins.plugins.clangscanbuild.reports.RenderedGraph;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
@@ -47,8 +50,11 @@ import org.kohsuke.stapler.StaplerResponse;
 public class ClangScanBuildProjectAction implements Action{
 
 	private static final String DEFAULT_IMAGE = "/images/headless.png";
+
+	// larger graphs are drawn at this size, so requests can not fill the graph cache with huge images
+	private static final int MAX_GRAPH_SIZE = 2000;
+
 	public final AbstractProject<?,?> project;
-	private ClangScanBuildHistoryGatherer gatherer = new ClangScanBuildHistoryGathererImpl();
 	
 	public ClangScanBuildProjectAction( AbstractProject<?,?> project ) {
 		super();
@@ -61,10 +67,15 @@ public class ClangScanBuildProjectAction implements Action{
 	}
 	
 	/**
-	 * Doing this wastefully because i do not know the lifecycle of this object.  Is it a singleton?
+	 * The points come from the ClangScanBuildTrendCache, which is kept current as builds complete, so the
+	 * build history is not walked for every page view.
 	 */
 	public ClangBuildGraph getGraph(){
-		return new ClangBuildGraph( gatherer.gatherHistoryDataSet( project.getLastBuild() ) );
+		return new ClangBuildGraph( getPoints(), project.getUrl() );
+	}
+
+	private List<GraphPoint> getPoints(){
+		return ClangScanBuildTrendCache.getInstance().getPoints( project );
 	}
 
 	@Override
@@ -83,16 +94,61 @@ public class ClangScanBuildProjectAction implements Action{
             return;
         }
 
-    	getGraph().doPng( req, rsp );
+    	RenderedGraph graph = getRenderedGraph( req );
+    	if( checkNotModified( req, rsp, graph.getPngETag() ) ) return;
+
+    	rsp.setContentType( "image/png" );
+    	rsp.setContentLength( graph.getPng().length );
+    	rsp.getOutputStream().write( graph.getPng() );
     }
     
     public void doMap( StaplerRequest req, StaplerResponse rsp ) throws IOException {
-    	getGraph().doMap( req, rsp );
+    	RenderedGraph graph = getRenderedGraph( req );
+    	if( checkNotModified( req, rsp, graph.getMapETag() ) ) return;
+
+    	rsp.setContentType( "text/plain;charset=UTF-8" );
+    	rsp.getWriter().println( graph.getMap() );
+    }
+
+    /**
+     * The image and the map are rendered once per project, series, size and trend, see ClangBuildGraphCache.
+     * The series parameter selects the bug count, the bug count per category or the new and fixed bugs.
+     */
+    private RenderedGraph getRenderedGraph( StaplerRequest req ) throws IOException {
+    	int width = parseSize( req.getParameter( "width" ), ClangBuildGraph.DEFAULT_WIDTH );
+    	int height = parseSize( req.getParameter( "height" ), ClangBuildGraph.DEFAULT_HEIGHT );
+    	return ClangBuildGraphCache.getInstance().get( project, getPoints(), parseSeries( req.getParameter( "series" ) ), width, height );
+    }
+
+    // unknown series are drawn as the bug count and share its cache entry
+    private String parseSeries( String series ){
+    	if( ClangBuildGraph.SERIES_CATEGORY.equals( series ) || ClangBuildGraph.SERIES_NEW_AND_FIXED.equals( series ) ) return series;
+    	return ClangBuildGraph.SERIES_TOTAL;
+    }
+
+    private int parseSize( String value, int defaultSize ){
+    	if( value == null ) return defaultSize;
+    	try{
+    		int size = Integer.parseInt( value );
+    		return size <= 0 ? defaultSize : Math.min( size, MAX_GRAPH_SIZE );
+    	}catch( NumberFormatException e ){
+    		return defaultSize;
+    	}
+    }
+
+    /**
+     * Browsers revalidate the graph on every view and get a 304 while the trend is unchanged.
+     */
+    private boolean checkNotModified( StaplerRequest req, StaplerResponse rsp, String eTag ){
+    	rsp.setHeader( "ETag", eTag );
+    	rsp.setHeader( "Cache-Control", "no-cache" );
+    	if( !ClangScanBuildUtils.matchesETag( req.getHeader( "If-None-Match" ), eTag ) ) return false;
+    	rsp.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+    	return true;
     }
     
     public boolean buildDataExists(){
-    	List<GraphPoint> points = gatherer.gatherHistoryDataSet( project.getLastBuild() );
-    	return points.size() > 0;
+    	return !getPoints().isEmpty();
     }
     
 }
@@ -21,19 +21,88 @@
  */
 package jenkins.plugins.clangscanbuild.history;
 
-public class ClangScanBuildBug {
-
-	public String reportFile;
-	public String sourceFile;
-	public String bugType;
-	public String bugDescription;
-	public String bugCategory;
-	public String functionName;
-	public String bugLine;
-	public String bugColumn;
-	public String bugPathLength;
-	public boolean newBug;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public class ClangScanBuildBug implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	// Checkers and checker packages with the category clang names in its HTML reports, the most specific first
+	private static final String[][] CHECKER_CATEGORIES = {
+		{ "unix.Malloc", "Memory error" },
+		{ "unix.MallocSizeof", "Memory error" },
+		{ "unix.MismatchedDeallocator", "Memory error" },
+		{ "cplusplus.NewDelete", "Memory error" },
+		{ "cplusplus.NewDeleteLeaks", "Memory error" },
+		{ "osx.API", "API" },
+		{ "osx.SecKeychainAPI", "API" },
+		{ "unix", "Unix API" },
+		{ "core", "Logic error" },
+		{ "cplusplus", "Logic error" },
+		{ "deadcode", "Dead store" },
+		{ "security", "Security" },
+		{ "osx", "Core Foundation/Objective-C" }
+	};
+
+	private String reportFile;
+	private String sourceFile;
+	private String bugType;
+	private String bugDescription;
+	private String bugCategory;
+	private String functionName;
+	private int bugLine;
+	private int bugColumn;
+	private int bugPathLength;
+	private String checkerName;
+	private boolean newBug;
+
+	/**
+	 * The first 64 bits of the issue hash clang computes from the checker, the function and the
+	 * content of the line in context.  It does not change when code is added above the bug, so
+	 * it identifies the same bug across builds.  Zero when the report did not provide one.
+	 */
+	private long issueHash;
+
+	// Fallback fingerprint built from the bug fields, computed on first use
+	private transient long contextHash;
+
+	// The bugs are kept in hash sets, so the hash code is computed once and only recomputed after a setter
+	// changed one of the fields it covers.  The fields are private so every change goes through a setter.
+	private transient int hashCode;
+
+	public ClangScanBuildBug(){
+		super();
+	}
+
+	public ClangScanBuildBug( ClangScanBuildBug other ){
+		this();
+		this.reportFile = other.reportFile;
+		this.sourceFile = other.sourceFile;
+		this.bugType = other.bugType;
+		this.bugDescription = other.bugDescription;
+		this.bugCategory = other.bugCategory;
+		this.functionName = other.functionName;
+		this.bugLine = other.bugLine;
+		this.bugColumn = other.bugColumn;
+		this.bugPathLength = other.bugPathLength;
+		this.checkerName = other.checkerName;
+		this.newBug = other.newBug;
+		this.issueHash = other.issueHash;
+	}
 	
+	/**
+	 * Called after a bug was read from an XStream summary or sent over from the node.  Neither sets the
+	 * transient fingerprints, they are computed again from the fields that were read.
+	 */
+	private Object readResolve(){
+		contextHash = 0;
+		hashCode = 0;
+		return this;
+	}
+
 	public boolean isNewBug() {
 		return newBug;
 	}
@@ -45,58 +114,174 @@ public class ClangScanBuildBug {
 	}
 	public void setBugCategory(String bugCategory) {
 		this.bugCategory = bugCategory;
+		this.contextHash = 0;
+		this.hashCode = 0;
 	}
 	public String getBugType() {
 		return bugType;
 	}
 	public void setBugType(String bugType) {
 		this.bugType = bugType;
+		this.contextHash = 0;
+		this.hashCode = 0;
 	}
 	public String getBugDescription() {
 		return bugDescription;
 	}
 	public void setBugDescription(String bugDescription) {
 		this.bugDescription = bugDescription;
+		this.contextHash = 0;
+		this.hashCode = 0;
 	}
 	public String getReportFile() {
 		return reportFile;
 	}
 	public void setReportFile(String reportFile) {
 		this.reportFile = reportFile;
+		this.hashCode = 0;
 	}
 	public String getSourceFile() {
 		return sourceFile;
 	}
 	public void setSourceFile(String sourceFile) {
 		this.sourceFile = sourceFile;
+		this.contextHash = 0;
+		this.hashCode = 0;
 	}
 	public String getFunctionName() {
 		return functionName;
 	}
 	public void setFunctionName(String functionName) {
 		this.functionName = functionName;
+		this.contextHash = 0;
 	}
-	public String getBugLine() {
+	public int getBugLine() {
 		return bugLine;
 	}
-	public void setBugLine(String BugLine) {
+	public void setBugLine(int bugLine) {
 		this.bugLine = bugLine;
+		this.hashCode = 0;
 	}
-	public String getBugColumn() {
+	public int getBugColumn() {
 		return bugColumn;
 	}
-	public void setBugColumn(String bugColumn) {
+	public void setBugColumn(int bugColumn) {
 		this.bugColumn = bugColumn;
+		this.hashCode = 0;
+	}
+	/**
+	 * Name of the analyzer check that reported the bug, for instance deadcode.DeadStores.  Only
+	 * available when the bug was read from a plist or SARIF file.
+	 */
+	public String getCheckerName() {
+		return checkerName;
 	}
-	public String getBugPathLength() {
+	public void setCheckerName(String checkerName) {
+		this.checkerName = checkerName;
+	}
+	public long getIssueHash() {
+		return issueHash;
+	}
+	public void setIssueHash(long issueHash) {
+		this.issueHash = issueHash;
+		this.hashCode = 0;
+	}
+
+	/**
+	 * Fingerprint of the bug built from the source file, category, type and description.
+	 * This is used to match bugs when clang did not provide an issue hash, for instance with summaries
+	 * recorded by earlier versions of this plugin.  The function is left out because those summaries
+	 * never recorded it.
+	 */
+	public long getContextHash() {
+		if( contextHash == 0 ){
+			contextHash = fingerprint( sourceFile, bugCategory, bugType, bugDescription == null ? null : bugDescription.trim() );
+		}
+		return contextHash;
+	}
+
+	/**
+	 * Converts the hex issue hash written by clang (ISSUEHASHCONTENTOFLINEINCONTEXT) to a fingerprint.
+	 * Returns zero if the value is missing or is not a hex string.
+	 */
+	public static long parseIssueHash( String hex ){
+		if( hex == null ) return 0;
+
+		String value = hex.trim();
+		int digits = Math.min( 16, value.length() );
+		if( digits == 0 ) return 0;
+
+		long hash = 0;
+		for( int i = 0; i < digits; i++ ){
+			int digit = Character.digit( value.charAt( i ), 16 );
+			if( digit < 0 ) return 0;
+			hash = ( hash << 4 ) | digit;
+		}
+		return hash;
+	}
+
+	private static long fingerprint( String... values ){
+		try{
+			MessageDigest md5 = MessageDigest.getInstance( "MD5" );
+			for( String value : values ){
+				if( value != null ) md5.update( value.getBytes( "UTF-8" ) );
+				md5.update( (byte) 0 );
+			}
+
+			byte[] digest = md5.digest();
+			long hash = 0;
+			for( int i = 0; i < 8; i++ ){
+				hash = ( hash << 8 ) | ( digest[i] & 0xff );
+			}
+			return hash;
+		}catch( NoSuchAlgorithmException e ){
+			throw new IllegalStateException( "MD5 is not available", e );
+		}catch( UnsupportedEncodingException e ){
+			throw new IllegalStateException( "UTF-8 is not available", e );
+		}
+	}
+
+	public int getBugPathLength() {
 		return bugPathLength;
 	}
-	public void setBugPathLength(String bugPathLength) {
+	public void setBugPathLength(int bugPathLength) {
 		this.bugPathLength = bugPathLength;
 	}
 
+	/**
+	 * Returns the category clang names in its HTML reports for a checker, such as deadcode.DeadStores, or for
+	 * a checker package, such as deadcode.  Plist and SARIF files only name the checker.  Returns null for
+	 * checkers without a known category.
+	 */
+	public static String categoryOfChecker( String checkerName ){
+		if( checkerName == null ) return null;
+
+		for( String[] checkerCategory : CHECKER_CATEGORIES ){
+			String checker = checkerCategory[0];
+			if( checkerName.startsWith( checker ) && ( checkerName.length() == checker.length() || checkerName.charAt( checker.length() ) == '.' ) ){
+				return checkerCategory[1];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Converts a line, column or path length read from a report to a number.  Returns zero if the value is
+	 * missing or is not a number.
+	 */
+	public static int parseNumber( String value ){
+		if( value == null ) return 0;
+		try{
+			return Integer.parseInt( value.trim() );
+		}catch( NumberFormatException e ){
+			return 0;
+		}
+	}
+
 	@Override
 	public int hashCode() {
+		if( hashCode != 0 ) return hashCode;
+
 		final int prime = 31;
 		int result = 1;
 		result = prime * result
@@ -108,6 +293,11 @@ public class ClangScanBuildBug {
 				+ ((reportFile == null) ? 0 : reportFile.hashCode());
 		result = prime * result
 				+ ((sourceFile == null) ? 0 : sourceFile.hashCode());
+		// bugs read from plist and SARIF files have no report file, their position tells them apart
+		result = prime * result + bugLine;
+		result = prime * result + bugColumn;
+		result = prime * result + (int) (issueHash ^ (issueHash >>> 32));
+		hashCode = result;
 		return result;
 	}
 	
@@ -145,6 +335,10 @@ public class ClangScanBuildBug {
 				return false;
 		} else if (!sourceFile.equals(other.sourceFile))
 			return false;
+		if (bugLine != other.bugLine || bugColumn != other.bugColumn)
+			return false;
+		if (issueHash != other.issueHash)
+			return false;
 		return true;
 	}
 	
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.history;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Bug counts of a build by category and type, and the number of bugs added and fixed since the previous build.
+ * They are computed once when the build is published and stored with the build action, so trends never need
+ * the full bug summaries.
+ */
+@ExportedBean(defaultVisibility=2)
+public class ClangScanBuildBugAggregates {
+
+	private Map<String,Integer> bugCountsByCategory = new TreeMap<String,Integer>();
+	private Map<String,Integer> bugCountsByType = new TreeMap<String,Integer>();
+	private int newBugCount;
+	private int fixedBugCount;
+
+	/**
+	 * Bugs that were in the previous build and are not anymore are counted as fixed.
+	 * 
+	 * @param previousBugCount the bug count of the build before this one, or -1 if that build has no scan-build result
+	 */
+	public static ClangScanBuildBugAggregates compute( ClangScanBuildBugSummary summary, int previousBugCount ){
+		ClangScanBuildBugAggregates aggregates = new ClangScanBuildBugAggregates();
+		for( ClangScanBuildBug bug : summary.getBugs() ){
+			increment( aggregates.bugCountsByCategory, bug.getBugCategory() );
+			increment( aggregates.bugCountsByType, bug.getBugType() );
+			if( bug.isNewBug() ) aggregates.newBugCount++;
+		}
+
+		int unchangedBugCount = summary.getBugCount() - aggregates.newBugCount;
+		aggregates.fixedBugCount = previousBugCount < 0 ? 0 : Math.max( 0, previousBugCount - unchangedBugCount );
+		return aggregates;
+	}
+
+	@Exported
+	public Map<String,Integer> getBugCountsByCategory(){
+		return Collections.unmodifiableMap( bugCountsByCategory );
+	}
+
+	@Exported
+	public Map<String,Integer> getBugCountsByType(){
+		return Collections.unmodifiableMap( bugCountsByType );
+	}
+
+	@Exported
+	public int getNewBugCount(){
+		return newBugCount;
+	}
+
+	@Exported
+	public int getFixedBugCount(){
+		return fixedBugCount;
+	}
+
+	private static void increment( Map<String,Integer> counts, String key ){
+		if( key == null ) key = "";
+		Integer count = counts.get( key );
+		counts.put( key, count == null ? 1 : count + 1 );
+	}
+
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.history;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Filters and sorts the bugs of a summary for one page of the bug table.  The filter is matched
+ * case-insensitively against the category, type, source file and description of every bug.  Bugs that sort
+ * equal are ordered by report file so pages do not overlap.
+ */
+public class ClangScanBuildBugQuery {
+
+	public static final String SORT_CATEGORY = "category";
+	public static final String SORT_TYPE = "type";
+	public static final String SORT_FILE = "file";
+	public static final String SORT_PATH_LENGTH = "pathLength";
+	public static final String SORT_DESCRIPTION = "description";
+
+	private final String sort;
+	private final boolean descending;
+	private final String filter;
+
+	/**
+	 * @param sort one of the SORT_ constants, anything else sorts by source file
+	 * @param filter text the bugs must contain, null or empty for all bugs
+	 */
+	public ClangScanBuildBugQuery( String sort, boolean descending, String filter ){
+		this.sort = sort;
+		this.descending = descending;
+		this.filter = ( filter == null || filter.trim().length() == 0 ) ? null : filter.trim().toLowerCase( Locale.ENGLISH );
+	}
+
+	/**
+	 * Identifies the result of the query, queries with the same key return the same bugs in the same order.
+	 */
+	public String getKey(){
+		String sortKey = ( SORT_CATEGORY.equals( sort ) || SORT_TYPE.equals( sort ) || SORT_PATH_LENGTH.equals( sort ) || SORT_DESCRIPTION.equals( sort ) ) ? sort : SORT_FILE;
+		return sortKey + ( descending ? " desc " : " asc " ) + ( filter == null ? "" : filter );
+	}
+
+	/**
+	 * Returns the matching bugs in sort order.
+	 */
+	public List<ClangScanBuildBug> apply( Collection<ClangScanBuildBug> bugs ){
+		List<ClangScanBuildBug> matches = new ArrayList<ClangScanBuildBug>( filter == null ? bugs.size() : 16 );
+		for( ClangScanBuildBug bug : bugs ){
+			if( matches( bug ) ) matches.add( bug );
+		}
+
+		Comparator<ClangScanBuildBug> comparator = comparator();
+		Collections.sort( matches, descending ? Collections.reverseOrder( comparator ) : comparator );
+		return matches;
+	}
+
+	private boolean matches( ClangScanBuildBug bug ){
+		if( filter == null ) return true;
+		return contains( bug.getBugCategory() ) || contains( bug.getBugType() ) || contains( bug.getSourceFile() ) || contains( bug.getBugDescription() );
+	}
+
+	private boolean contains( String value ){
+		return value != null && value.toLowerCase( Locale.ENGLISH ).contains( filter );
+	}
+
+	private Comparator<ClangScanBuildBug> comparator(){
+		if( SORT_PATH_LENGTH.equals( sort ) ){
+			return new Comparator<ClangScanBuildBug>(){
+				public int compare( ClangScanBuildBug first, ClangScanBuildBug second ){
+					int result = first.getBugPathLength() < second.getBugPathLength() ? -1 : ( first.getBugPathLength() == second.getBugPathLength() ? 0 : 1 );
+					return result != 0 ? result : compareStrings( first.getReportFile(), second.getReportFile() );
+				}
+			};
+		}
+
+		return new Comparator<ClangScanBuildBug>(){
+			public int compare( ClangScanBuildBug first, ClangScanBuildBug second ){
+				int result = compareStrings( sortValue( first ), sortValue( second ) );
+				if( result == 0 && !SORT_FILE.equals( sort ) ) result = compareStrings( first.getSourceFile(), second.getSourceFile() );
+				if( result == 0 ) result = first.getBugLine() < second.getBugLine() ? -1 : ( first.getBugLine() == second.getBugLine() ? 0 : 1 );
+				return result != 0 ? result : compareStrings( first.getReportFile(), second.getReportFile() );
+			}
+		};
+	}
+
+	private String sortValue( ClangScanBuildBug bug ){
+		if( SORT_CATEGORY.equals( sort ) ) return bug.getBugCategory();
+		if( SORT_TYPE.equals( sort ) ) return bug.getBugType();
+		if( SORT_DESCRIPTION.equals( sort ) ) return bug.getBugDescription();
+		return bug.getSourceFile();
+	}
+
+	// nulls sort first
+	private static int compareStrings( String first, String second ){
+		if( first == null ) return second == null ? 0 : -1;
+		if( second == null ) return 1;
+		return first.compareTo( second );
+	}
+
+}
@@ -23,29 +23,103 @@ package jenkins.plugins.clangscanbuild.history;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class ClangScanBuildBugSummary {
 
+	// Number of sorted and filtered bug lists kept for the bug table
+	private static final int QUERY_RESULTS = 4;
+
 	private int buildNumber;
 	public Set<ClangScanBuildBug> bugs = new HashSet<ClangScanBuildBug>();
+
+	// Built on the first call to contains and dropped whenever bugs are added.  They are transient so they
+	// are never written to the bugSummary.xml file.
+	private transient Set<Long> issueHashes;
+	private transient Set<Long> contextHashes;
+	private transient Set<Long> contextHashesWithoutIssueHash;
+
+	// The results of the last queries of the bug table by query key, least recently used first.  Dropped
+	// whenever bugs are added.
+	private transient Map<String,List<ClangScanBuildBug>> queryResults;
 	
-	public boolean contains( ClangScanBuildBug bug ){
+	/**
+	 * Returns true if the same bug exists in this summary.  This is used to flag the bugs of a new build
+	 * that did not exist in the previous build, so the lookup goes through hash indexes of the bug
+	 * fingerprints instead of walking every bug.
+	 * 
+	 * Bugs are matched on the clang issue hash when both bugs have one.  Otherwise they are matched
+	 * on their context hash, which keeps summaries recorded without issue hashes comparable.
+	 * 
+	 * Summaries are shared through the ClangScanBuildBugSummaryCache, so building the indexes is synchronized.
+	 */
+	public synchronized boolean contains( ClangScanBuildBug bug ){
+		if( issueHashes == null ) buildIndexes();
+
+		if( bug.getIssueHash() == 0 ){
+			return contextHashes.contains( bug.getContextHash() );
+		}
+		return issueHashes.contains( bug.getIssueHash() ) || contextHashesWithoutIssueHash.contains( bug.getContextHash() );
+	}
+
+	private void buildIndexes(){
+		Set<Long> issues = new HashSet<Long>( bugs.size() * 2 );
+		Set<Long> contexts = new HashSet<Long>( bugs.size() * 2 );
+		Set<Long> contextsWithoutIssue = new HashSet<Long>();
 		for( ClangScanBuildBug candidate : bugs ){
-			if( bug.getBugDescription().equals( candidate.getBugDescription() ) ) return true;
+			contexts.add( candidate.getContextHash() );
+			if( candidate.getIssueHash() == 0 ){
+				contextsWithoutIssue.add( candidate.getContextHash() );
+			}else{
+				issues.add( candidate.getIssueHash() );
+			}
 		}
-		return false;
+		contextHashes = contexts;
+		contextHashesWithoutIssueHash = contextsWithoutIssue;
+		issueHashes = issues;
 	}
 	
 	public ClangScanBuildBugSummary( int buildNumber ){
 		this.buildNumber = buildNumber;
 	}
 	
-	public boolean add( ClangScanBuildBug bug ){
+	public synchronized boolean add( ClangScanBuildBug bug ){
+		issueHashes = null;
+		queryResults = null;
 		return bugs.add( bug );
 	}
+
+	/**
+	 * Returns the bugs matching the query in its sort order.  The bug table asks for one page at a time, so the
+	 * results of the last few queries are kept and the following pages are taken from them instead of filtering
+	 * and sorting all bugs again.  The returned list can not be modified.
+	 */
+	public synchronized List<ClangScanBuildBug> query( ClangScanBuildBugQuery query ){
+		if( queryResults == null ){
+			queryResults = new LinkedHashMap<String,List<ClangScanBuildBug>>( 16, 0.75f, true ){
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry( Map.Entry<String,List<ClangScanBuildBug>> eldest ){
+					return size() > QUERY_RESULTS;
+				}
+			};
+		}
+
+		String key = query.getKey();
+		List<ClangScanBuildBug> result = queryResults.get( key );
+		if( result == null ){
+			result = Collections.unmodifiableList( query.apply( bugs ) );
+			queryResults.put( key, result );
+		}
+		return result;
+	}
 	
 	public int getBugCount(){
 		return bugs.size();
@@ -55,10 +129,52 @@ public class ClangScanBuildBugSummary {
 		return new ArrayList<ClangScanBuildBug>( bugs );
 	}
 
-	public void addBugs( Collection<ClangScanBuildBug> bugs ) {
+	/**
+	 * Adds the bugs of a build.  Their source files, types, categories and function names repeat across thousands
+	 * of bugs, so the bugs are made to share them while they are added.
+	 */
+	public synchronized void addBugs( Collection<ClangScanBuildBug> bugs ) {
+		issueHashes = null;
+		queryResults = null;
+		shareStrings( bugs );
 		this.bugs.addAll( bugs );
 	}
 
+	/**
+	 * Called by XStream after reading a summary.  Replacing the strings by equal ones does not change the
+	 * hash codes of the bugs already in the set.
+	 */
+	private Object readResolve(){
+		if( bugs == null ) bugs = new HashSet<ClangScanBuildBug>();
+		shareStrings( bugs );
+		return this;
+	}
+
+	// The pool only lives while the bugs are added.  Descriptions are mostly unique, pooling them costs more
+	// than it saves.
+	private static void shareStrings( Collection<ClangScanBuildBug> bugs ){
+		Map<String,String> pool = new HashMap<String,String>();
+		for( ClangScanBuildBug bug : bugs ){
+			if( bug == null ) continue;
+			bug.setSourceFile( pooled( pool, bug.getSourceFile() ) );
+			bug.setBugType( pooled( pool, bug.getBugType() ) );
+			bug.setBugCategory( pooled( pool, bug.getBugCategory() ) );
+			bug.setFunctionName( pooled( pool, bug.getFunctionName() ) );
+			bug.setCheckerName( pooled( pool, bug.getCheckerName() ) );
+		}
+	}
+
+	private static String pooled( Map<String,String> pool, String value ){
+		if( value == null ) return null;
+
+		String pooled = pool.get( value );
+		if( pooled == null ){
+			pool.put( value, value );
+			return value;
+		}
+		return pooled;
+	}
+
 	public int getBuildNumber() {
 		return buildNumber;
 	}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.history;
+
+import hudson.model.AbstractBuild;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Controller-wide cache of loaded bug summaries, keyed by job and build number.  Summaries are evicted least
+ * recently used first once the bugs of all cached summaries exceed the limit, which can be changed with the
+ * jenkins.plugins.clangscanbuild.history.ClangScanBuildBugSummaryCache.maxBugs system property.
+ * 
+ * Cached summaries are shared by every request, so they must not be modified.
+ */
+public class ClangScanBuildBugSummaryCache {
+
+	public static final String MAX_BUGS_PROPERTY = ClangScanBuildBugSummaryCache.class.getName() + ".maxBugs";
+
+	private static final int DEFAULT_MAX_BUGS = 200000;
+
+	private static final ClangScanBuildBugSummaryCache INSTANCE = new ClangScanBuildBugSummaryCache( Integer.getInteger( MAX_BUGS_PROPERTY, DEFAULT_MAX_BUGS ) );
+
+	private final LinkedHashMap<String,ClangScanBuildBugSummary> summaries = new LinkedHashMap<String,ClangScanBuildBugSummary>( 16, 0.75f, true );
+	private final long maxBugs;
+	private long cachedBugs;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	public ClangScanBuildBugSummaryCache( long maxBugs ){
+		this.maxBugs = maxBugs;
+	}
+
+	public static ClangScanBuildBugSummaryCache getInstance(){
+		return INSTANCE;
+	}
+
+	public static String keyFor( AbstractBuild<?,?> build ){
+		return build.getParent().getFullName() + "#" + build.getNumber();
+	}
+
+	/**
+	 * Returns the cached summary or null, counting the lookup as a hit or a miss.
+	 */
+	public synchronized ClangScanBuildBugSummary get( String key ){
+		ClangScanBuildBugSummary summary = summaries.get( key );
+		if( summary == null ){
+			misses++;
+		}else{
+			hits++;
+		}
+		return summary;
+	}
+
+	public synchronized void put( String key, ClangScanBuildBugSummary summary ){
+		if( summary == null ) return;
+		remove( key );
+
+		long weight = weigh( summary );
+		if( weight > maxBugs ) return;
+
+		summaries.put( key, summary );
+		cachedBugs += weight;
+
+		Iterator<ClangScanBuildBugSummary> eldest = summaries.values().iterator();
+		while( cachedBugs > maxBugs && eldest.hasNext() ){
+			cachedBugs -= weigh( eldest.next() );
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	public synchronized void remove( String key ){
+		ClangScanBuildBugSummary removed = summaries.remove( key );
+		if( removed != null ) cachedBugs -= weigh( removed );
+	}
+
+	public synchronized int getSize(){
+		return summaries.size();
+	}
+
+	public synchronized long getCachedBugs(){
+		return cachedBugs;
+	}
+
+	public synchronized long getHits(){
+		return hits;
+	}
+
+	public synchronized long getMisses(){
+		return misses;
+	}
+
+	public synchronized long getEvictions(){
+		return evictions;
+	}
+
+	/**
+	 * Share of lookups answered from the cache, between 0 and 1.
+	 */
+	public synchronized double getHitRate(){
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	// a summary without bugs still takes a slot
+	private long weigh( ClangScanBuildBugSummary summary ){
+		return Math.max( 1, summary.getBugCount() );
+	}
+
+}
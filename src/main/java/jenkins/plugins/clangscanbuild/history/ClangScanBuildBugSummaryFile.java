@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.history;
+
+import hudson.model.AbstractBuild;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes the bug summary of a build in a compact binary format.
+ * 
+ * The file starts with a magic number and a format version, followed by the build number, the bug count
+ * and the bugs.  File names, bug types, categories and the other text fields repeat a lot, so every string
+ * is written once and referred to by its index afterwards.  The string table is built while writing: a
+ * reference to the next free index is followed by the string itself, so both writing and reading are a
+ * single streaming pass.
+ * 
+ * Summaries recorded by earlier versions of this plugin are XStream XML, read tells the two apart by the
+ * magic number.
+ */
+public class ClangScanBuildBugSummaryFile {
+
+	public static final String FILENAME = "bugSummary.dat";
+
+	// "CSBS"
+	private static final int MAGIC = 0x43534253;
+	private static final int VERSION = 1;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final int FLAG_NEW_BUG = 1;
+
+	/**
+	 * Writes the summary to the stream, which is not closed.
+	 */
+	public static void write( ClangScanBuildBugSummary summary, OutputStream stream ) throws IOException {
+		DataOutputStream out = new DataOutputStream( new BufferedOutputStream( stream, BUFFER_SIZE ) );
+		out.writeInt( MAGIC );
+		out.writeByte( VERSION );
+		out.writeInt( summary.getBuildNumber() );
+
+		List<ClangScanBuildBug> bugs = summary.getBugs();
+		writeVarInt( out, bugs.size() );
+
+		Map<String,Integer> strings = new HashMap<String,Integer>();
+		for( ClangScanBuildBug bug : bugs ){
+			writeString( out, strings, bug.getReportFile() );
+			writeString( out, strings, bug.getSourceFile() );
+			writeString( out, strings, bug.getBugType() );
+			writeString( out, strings, bug.getBugDescription() );
+			writeString( out, strings, bug.getBugCategory() );
+			writeString( out, strings, bug.getFunctionName() );
+			writeVarInt( out, bug.getBugLine() );
+			writeVarInt( out, bug.getBugColumn() );
+			writeVarInt( out, bug.getBugPathLength() );
+			writeString( out, strings, bug.getCheckerName() );
+			out.writeByte( bug.isNewBug() ? FLAG_NEW_BUG : 0 );
+			out.writeLong( bug.getIssueHash() );
+		}
+		out.flush();
+	}
+
+	/**
+	 * Reads a summary in the binary format, or in the XStream XML format used by earlier versions of this
+	 * plugin.  The stream is not closed.
+	 */
+	public static ClangScanBuildBugSummary read( InputStream stream ) throws IOException {
+		final List<ClangScanBuildBug> bugs = new ArrayList<ClangScanBuildBug>();
+		BugVisitor collector = new BugVisitor(){
+			public void visit( ClangScanBuildBug bug ){
+				bugs.add( bug );
+			}
+		};
+
+		Object result = readBugs( stream, collector );
+		if( result instanceof ClangScanBuildBugSummary ) return (ClangScanBuildBugSummary) result;
+
+		ClangScanBuildBugSummary summary = new ClangScanBuildBugSummary( (Integer) result );
+		summary.addBugs( bugs );
+		return summary;
+	}
+
+	/**
+	 * Hands the bugs to the visitor one at a time as they are read, without building the summary.  Summaries
+	 * in the XML format can not be streamed and are read in full first.  Returns the build number.  The stream
+	 * is not closed.
+	 */
+	public static int stream( InputStream stream, BugVisitor visitor ) throws IOException {
+		Object result = readBugs( stream, visitor );
+		if( !( result instanceof ClangScanBuildBugSummary ) ) return (Integer) result;
+
+		ClangScanBuildBugSummary summary = (ClangScanBuildBugSummary) result;
+		for( ClangScanBuildBug bug : summary.getBugs() ){
+			visitor.visit( bug );
+		}
+		return summary.getBuildNumber();
+	}
+
+	/**
+	 * Returns the build number after handing the bugs of a binary summary to the visitor, or the whole summary
+	 * if it is in the XML format.
+	 */
+	private static Object readBugs( InputStream stream, BugVisitor visitor ) throws IOException {
+		BufferedInputStream buffered = new BufferedInputStream( stream, BUFFER_SIZE );
+		buffered.mark( 4 );
+		DataInputStream in = new DataInputStream( buffered );
+
+		int magic;
+		try{
+			magic = in.readInt();
+		}catch( EOFException e ){
+			magic = 0;
+		}
+		if( magic != MAGIC ){
+			buffered.reset();
+			return (ClangScanBuildBugSummary) AbstractBuild.XSTREAM.fromXML( buffered );
+		}
+
+		int version = in.readUnsignedByte();
+		if( version != VERSION ){
+			throw new IOException( "Unsupported bug summary version: " + version );
+		}
+
+		int buildNumber = in.readInt();
+		int bugCount = readVarInt( in );
+
+		List<String> strings = new ArrayList<String>();
+		for( int i = 0; i < bugCount; i++ ){
+			ClangScanBuildBug bug = new ClangScanBuildBug();
+			bug.setReportFile( readString( in, strings ) );
+			bug.setSourceFile( readString( in, strings ) );
+			bug.setBugType( readString( in, strings ) );
+			bug.setBugDescription( readString( in, strings ) );
+			bug.setBugCategory( readString( in, strings ) );
+			bug.setFunctionName( readString( in, strings ) );
+			bug.setBugLine( readVarInt( in ) );
+			bug.setBugColumn( readVarInt( in ) );
+			bug.setBugPathLength( readVarInt( in ) );
+			bug.setCheckerName( readString( in, strings ) );
+			bug.setNewBug( ( in.readUnsignedByte() & FLAG_NEW_BUG ) != 0 );
+			bug.setIssueHash( in.readLong() );
+			visitor.visit( bug );
+		}
+		return buildNumber;
+	}
+
+	/**
+	 * Strings are written as a reference: 0 for null, otherwise the table index plus one.  A reference
+	 * to the next free index is followed by the UTF-8 bytes of the new string.
+	 */
+	private static void writeString( DataOutputStream out, Map<String,Integer> strings, String value ) throws IOException {
+		if( value == null ){
+			writeVarInt( out, 0 );
+			return;
+		}
+
+		Integer index = strings.get( value );
+		if( index != null ){
+			writeVarInt( out, index + 1 );
+			return;
+		}
+
+		index = strings.size();
+		strings.put( value, index );
+		writeVarInt( out, index + 1 );
+
+		byte[] bytes = value.getBytes( "UTF-8" );
+		writeVarInt( out, bytes.length );
+		out.write( bytes );
+	}
+
+	private static String readString( DataInputStream in, List<String> strings ) throws IOException {
+		int reference = readVarInt( in );
+		if( reference == 0 ) return null;
+		if( reference <= strings.size() ) return strings.get( reference - 1 );
+		if( reference != strings.size() + 1 ){
+			throw new IOException( "Corrupt bug summary: string " + reference + " referenced before it was defined" );
+		}
+
+		byte[] bytes = new byte[ readVarInt( in ) ];
+		in.readFully( bytes );
+		String value = new String( bytes, "UTF-8" );
+		strings.add( value );
+		return value;
+	}
+
+	private static void writeVarInt( DataOutputStream out, int value ) throws IOException {
+		while( ( value & ~0x7f ) != 0 ){
+			out.writeByte( ( value & 0x7f ) | 0x80 );
+			value >>>= 7;
+		}
+		out.writeByte( value );
+	}
+
+	private static int readVarInt( DataInputStream in ) throws IOException {
+		int value = 0;
+		for( int shift = 0; shift < 32; shift += 7 ){
+			int b = in.readUnsignedByte();
+			value |= ( b & 0x7f ) << shift;
+			if( ( b & 0x80 ) == 0 ) return value;
+		}
+		throw new IOException( "Corrupt bug summary: variable length integer is too long" );
+	}
+
+	/**
+	 * Receives the bugs of a summary as they are read.
+	 */
+	public interface BugVisitor {
+
+		void visit( ClangScanBuildBug bug ) throws IOException;
+
+	}
+
+}
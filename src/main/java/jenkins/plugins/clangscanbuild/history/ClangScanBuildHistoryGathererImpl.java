@@ -54,6 +54,7 @@ public class ClangScanBuildHistoryGathererImpl implements ClangScanBuildHistoryG
 	        if( action == null ) continue;
 	        
 	        points.add( new GraphPoint( build, action.getBugCount() ) );
+	        gatheredBuilds++;
 	    }
 		
 	    return points;
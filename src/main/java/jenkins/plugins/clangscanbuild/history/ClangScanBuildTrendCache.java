@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.history;
+
+import hudson.model.AbstractProject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.plugins.clangscanbuild.reports.GraphPoint;
+
+/**
+ * Controller-wide cache of the trend points of each project, keyed by the project's full name.  The points of
+ * a project are read from its ClangScanBuildTrendIndex once, then ClangScanBuildTrendListener adds the point of
+ * every completed build, so rendering the project page neither walks the build history nor reads the index.
+ * Deleting a build drops the project's points and they are read again on the next request.  Deleting, renaming
+ * or moving the project drops them as well, so a project created under the same name starts afresh.
+ * 
+ * The returned lists are shared by every request and can not be modified.
+ */
+public class ClangScanBuildTrendCache {
+
+	private static final Logger LOGGER = Logger.getLogger( ClangScanBuildTrendCache.class.getName() );
+
+	public static final int NUMBER_OF_BUILDS = 60;
+
+	private static final ClangScanBuildTrendCache INSTANCE = new ClangScanBuildTrendCache( NUMBER_OF_BUILDS );
+
+	private final Map<String,List<GraphPoint>> trends = new HashMap<String,List<GraphPoint>>();
+	// counts the changes to any project, points read while a project changed are not stored
+	private long modifications;
+	private final int numberOfBuilds;
+
+	public ClangScanBuildTrendCache( int numberOfBuilds ){
+		this.numberOfBuilds = numberOfBuilds;
+	}
+
+	public static ClangScanBuildTrendCache getInstance(){
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the points of the project, latest build first.
+	 */
+	public List<GraphPoint> getPoints( AbstractProject<?,?> project ){
+		String key = project.getFullName();
+		long modification;
+		synchronized( this ){
+			List<GraphPoint> points = trends.get( key );
+			if( points != null ) return points;
+			modification = modifications;
+		}
+
+		// reading the index, or rebuilding it, should not hold up requests for other projects
+		List<GraphPoint> points = readPoints( project );
+		synchronized( this ){
+			List<GraphPoint> current = trends.get( key );
+			if( current != null ) return current;
+			if( modification == modifications ) trends.put( key, points );
+			return points;
+		}
+	}
+
+	/**
+	 * Adds the point of a completed build to the cached points of its project, the listener has recorded the
+	 * build in the index already.  Builds may complete out of order, so the point is inserted by build number.
+	 */
+	public synchronized void buildCompleted( AbstractProject<?,?> project, GraphPoint point ){
+		modifications++;
+
+		String key = project.getFullName();
+		List<GraphPoint> points = trends.get( key );
+		if( points == null ) return;
+
+		List<GraphPoint> updated = new ArrayList<GraphPoint>( points.size() + 1 );
+		boolean added = false;
+		for( GraphPoint existing : points ){
+			if( existing.getBuildNumber() == point.getBuildNumber() ) continue;
+			if( !added && existing.getBuildNumber() < point.getBuildNumber() ){
+				updated.add( point );
+				added = true;
+			}
+			updated.add( existing );
+		}
+		if( !added ) updated.add( point );
+
+		trends.put( key, Collections.unmodifiableList( updated.subList( 0, Math.min( numberOfBuilds, updated.size() ) ) ) );
+	}
+
+	public void invalidate( AbstractProject<?,?> project ){
+		invalidate( project.getFullName() );
+	}
+
+	/**
+	 * Drops the points of the project with the full name, which may no longer exist.
+	 */
+	public synchronized void invalidate( String fullName ){
+		modifications++;
+		trends.remove( fullName );
+	}
+
+	public synchronized int getSize(){
+		return trends.size();
+	}
+
+	private List<GraphPoint> readPoints( AbstractProject<?,?> project ){
+		try{
+			return Collections.unmodifiableList( ClangScanBuildTrendIndex.forProject( project ).readLatest( project, numberOfBuilds ) );
+		}catch( IOException e ){
+			LOGGER.log( Level.WARNING, "Unable to read the Clang scan-build trend index of " + project + ", gathering the trend from the builds", e );
+			return Collections.unmodifiableList( new ClangScanBuildHistoryGathererImpl( numberOfBuilds ).gatherHistoryDataSet( project.getLastBuild() ) );
+		}
+	}
+
+}
@@ -0,0 +1,368 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.history;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import jenkins.plugins.clangscanbuild.actions.ClangScanBuildAction;
+import jenkins.plugins.clangscanbuild.reports.GraphPoint;
+
+/**
+ * Append-only file in the project folder holding one fixed-width record per build with the counts drawn in the
+ * trend, so long trends are read from a single small file instead of loading every build.
+ * 
+ * The file starts with a header naming the categories that are counted, followed by the records.  Each record
+ * holds the build number, the build timestamp, the bug count, the new and fixed bug counts and the bug count
+ * of every category.  A record with a negative bug count marks a deleted build.  When a build is recorded more
+ * than once, the last record wins, so records may be appended in any order.
+ * 
+ * A missing index, or one written for other categories, is rebuilt from the builds of the project.
+ */
+public class ClangScanBuildTrendIndex {
+
+	public static final String FILENAME = "clangScanBuildTrend.idx";
+
+	/**
+	 * The categories counted per build, named as clang names them in its HTML reports.  Bugs in any other
+	 * category are counted as "Other".  ClangScanBuildBug.categoryOfChecker maps checkers to these names.
+	 */
+	public static final String[] CATEGORIES = { "Logic error", "Memory error", "Dead store", "API", "Unix API", "Security", "Core Foundation/Objective-C", "Other" };
+
+	private static final int MAGIC = 0x43535449;
+	private static final int VERSION = 1;
+
+	// build number, timestamp, bug count, new and fixed bug counts and the category counts
+	private static final int RECORD_SIZE = 4 + 8 + 4 + 4 + 4 + 4 * CATEGORIES.length;
+
+	private static final int DELETED = -1;
+
+	// one lock per index file keeps an append from interleaving with a rebuild of the same index
+	private static final ConcurrentMap<File,Object> LOCKS = new ConcurrentHashMap<File,Object>();
+
+	private final File file;
+	private final Object lock;
+
+	public ClangScanBuildTrendIndex( File file ){
+		this.file = file;
+		Object newLock = new Object();
+		Object lock = LOCKS.putIfAbsent( file.getAbsoluteFile(), newLock );
+		this.lock = lock == null ? newLock : lock;
+	}
+
+	public static ClangScanBuildTrendIndex forProject( AbstractProject<?,?> project ){
+		return new ClangScanBuildTrendIndex( new File( project.getRootDir(), FILENAME ) );
+	}
+
+	public File getFile(){
+		return file;
+	}
+
+	/**
+	 * Returns the points of the latest builds, latest build first, rebuilding the index from the builds of the
+	 * project when it is missing.
+	 */
+	public List<GraphPoint> readLatest( AbstractProject<?,?> project, int numberOfBuilds ) throws IOException {
+		List<GraphPoint> points = read();
+		if( points == null ){
+			// the builds are walked without holding the lock, it may take a while on large projects
+			List<GraphPoint> gatheredPoints = gatherPoints( project.getLastBuild() );
+			synchronized( lock ){
+				points = read();
+				if( points == null ){
+					points = gatheredPoints;
+					write( points );
+				}
+			}
+		}
+		List<GraphPoint> latest = new ArrayList<GraphPoint>( points.subList( Math.max( 0, points.size() - numberOfBuilds ), points.size() ) );
+		Collections.reverse( latest );
+		return latest;
+	}
+
+	/**
+	 * Returns the recorded points sorted by build number, latest build last, or null if the index is missing
+	 * or was written for other categories.
+	 */
+	public List<GraphPoint> read() throws IOException {
+		synchronized( lock ){
+			if( !file.isFile() ) return null;
+
+			DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) );
+			try{
+				if( !readHeader( in ) ) return null;
+
+				Map<Integer,GraphPoint> points = new TreeMap<Integer,GraphPoint>();
+				byte[] record = new byte[ RECORD_SIZE ];
+				while( true ){
+					try{
+						in.readFully( record );
+					}catch( EOFException e ){
+						// the end of the file, or a record cut short when the controller stopped while appending
+						break;
+					}
+					GraphPoint point = readRecord( new DataInputStream( new ByteArrayInputStream( record ) ) );
+					if( point.getBugCount() == DELETED ){
+						points.remove( point.getBuildNumber() );
+					}else{
+						points.put( point.getBuildNumber(), point );
+					}
+				}
+				return new ArrayList<GraphPoint>( points.values() );
+			}finally{
+				in.close();
+			}
+		}
+	}
+
+	/**
+	 * Appends the point of a build.  The index is rebuilt first if it is missing, which records every earlier
+	 * build of the project that has a scan-build result.
+	 */
+	public void append( AbstractProject<?,?> project, GraphPoint point ) throws IOException {
+		synchronized( lock ){
+			if( isCurrent() ){
+				appendRecord( point );
+				return;
+			}
+		}
+
+		List<GraphPoint> gatheredPoints = gatherPoints( project.getLastBuild() );
+		synchronized( lock ){
+			if( !isCurrent() ) write( gatheredPoints );
+			appendRecord( point );
+		}
+	}
+
+	/**
+	 * Records that the build was deleted.  Nothing is recorded when there is no index, the build will not be
+	 * part of it when it is rebuilt.
+	 */
+	public void remove( int buildNumber ) throws IOException {
+		synchronized( lock ){
+			if( !isCurrent() ) return;
+			appendRecord( new GraphPoint( buildNumber, 0, DELETED, 0, 0, new int[ CATEGORIES.length ] ) );
+		}
+	}
+
+	/**
+	 * Replaces the index with the points, written to a temporary file first so readers never see a partial index.
+	 */
+	public void write( List<GraphPoint> points ) throws IOException {
+		synchronized( lock ){
+			File temporaryFile = new File( file.getParentFile(), file.getName() + ".tmp" );
+			DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( temporaryFile ) ) );
+			try{
+				writeHeader( out );
+				for( GraphPoint point : points ){
+					writeRecord( point, out );
+				}
+			}finally{
+				out.close();
+			}
+			Files.move( temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+		}
+	}
+
+	/**
+	 * Creates the point of a completed build from its action.  Builds published by earlier versions of this
+	 * plugin have no aggregates, only their bug count is recorded.
+	 */
+	public static GraphPoint createPoint( AbstractBuild<?,?> build, ClangScanBuildAction action ){
+		if( action.getAggregates() == null ){
+			return new GraphPoint( build.getNumber(), build.getTimeInMillis(), action.getBugCount(), 0, 0, new int[ CATEGORIES.length ] );
+		}
+		return createPoint( build, action.getBugCount(), action.getAggregates() );
+	}
+
+	/**
+	 * Creates the point of a build from the aggregates computed when it was published.
+	 */
+	public static GraphPoint createPoint( AbstractBuild<?,?> build, int bugCount, ClangScanBuildBugAggregates aggregates ){
+		int[] categoryCounts = new int[ CATEGORIES.length ];
+		for( Map.Entry<String,Integer> category : aggregates.getBugCountsByCategory().entrySet() ){
+			categoryCounts[ categoryIndex( category.getKey() ) ] += category.getValue();
+		}
+		return new GraphPoint( build.getNumber(), build.getTimeInMillis(), bugCount, aggregates.getNewBugCount(), aggregates.getFixedBugCount(), categoryCounts );
+	}
+
+	/**
+	 * Returns the index of the category in CATEGORIES.  Summaries read from SARIF files before their checker
+	 * packages were mapped to clang's categories hold the package, such as deadcode, which is mapped here.
+	 */
+	public static int categoryIndex( String category ){
+		String checkerCategory = ClangScanBuildBug.categoryOfChecker( category );
+		if( checkerCategory != null ) category = checkerCategory;
+
+		for( int i = 0; i < CATEGORIES.length - 1; i++ ){
+			if( CATEGORIES[i].equalsIgnoreCase( category ) ) return i;
+		}
+		return CATEGORIES.length - 1;
+	}
+
+	/**
+	 * Walks the builds once to create the index.  Builds published by earlier versions of this plugin have no
+	 * aggregates, their bug summaries are loaded instead.
+	 */
+	private List<GraphPoint> gatherPoints( AbstractBuild<?,?> lastBuild ){
+		List<AbstractBuild<?,?>> builds = new ArrayList<AbstractBuild<?,?>>();
+		for( AbstractBuild<?,?> build = lastBuild; build != null; build = build.getPreviousBuild() ){
+			if( build.getAction( ClangScanBuildAction.class ) != null ) builds.add( build );
+		}
+		Collections.reverse( builds );
+
+		List<GraphPoint> points = new ArrayList<GraphPoint>( builds.size() );
+		GraphPoint previousPoint = null;
+		for( AbstractBuild<?,?> build : builds ){
+			// like the publisher, bugs are counted as fixed against the build right before, if it has a scan-build result
+			AbstractBuild<?,?> previousBuild = build.getPreviousBuild();
+			int previousBugCount = -1;
+			if( previousPoint != null && previousBuild != null && previousBuild.getNumber() == previousPoint.getBuildNumber() ){
+				previousBugCount = previousPoint.getBugCount();
+			}
+
+			ClangScanBuildAction action = build.getAction( ClangScanBuildAction.class );
+			ClangScanBuildBugAggregates aggregates = action.getAggregates();
+			if( aggregates == null ){
+				ClangScanBuildBugSummary summary = action.loadBugSummary();
+				if( summary != null ) aggregates = ClangScanBuildBugAggregates.compute( summary, previousBugCount );
+			}
+
+			GraphPoint point;
+			if( aggregates == null ){
+				point = new GraphPoint( build.getNumber(), build.getTimeInMillis(), action.getBugCount(), 0,
+						previousBugCount < 0 ? 0 : Math.max( 0, previousBugCount - action.getBugCount() ), new int[ CATEGORIES.length ] );
+			}else{
+				point = createPoint( build, action.getBugCount(), aggregates );
+			}
+			points.add( point );
+			previousPoint = point;
+		}
+		return points;
+	}
+
+	private boolean isCurrent() throws IOException {
+		if( !file.isFile() ) return false;
+		DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) );
+		try{
+			return readHeader( in );
+		}finally{
+			in.close();
+		}
+	}
+
+	private void appendRecord( GraphPoint point ) throws IOException {
+		// the record is written with a single call so a concurrent reader sees all of it or none of it
+		ByteArrayOutputStream record = new ByteArrayOutputStream( RECORD_SIZE );
+		writeRecord( point, new DataOutputStream( record ) );
+
+		RandomAccessFile out = new RandomAccessFile( file, "rw" );
+		try{
+			// a record cut short when the controller stopped while appending is dropped, otherwise every
+			// record appended after it would be read misaligned
+			long headerSize = headerSize();
+			long length = headerSize + ( out.length() - headerSize ) / RECORD_SIZE * RECORD_SIZE;
+			if( out.length() != length ) out.setLength( length );
+			out.seek( length );
+			out.write( record.toByteArray() );
+		}finally{
+			out.close();
+		}
+	}
+
+	private void writeHeader( DataOutputStream out ) throws IOException {
+		out.writeInt( MAGIC );
+		out.writeByte( VERSION );
+		out.writeByte( CATEGORIES.length );
+		for( String category : CATEGORIES ){
+			out.writeUTF( category );
+		}
+	}
+
+	private long headerSize() throws IOException {
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		writeHeader( new DataOutputStream( header ) );
+		return header.size();
+	}
+
+	private boolean readHeader( DataInputStream in ) throws IOException {
+		try{
+			if( in.readInt() != MAGIC || in.readUnsignedByte() != VERSION ) return false;
+			if( in.readUnsignedByte() != CATEGORIES.length ) return false;
+			for( String category : CATEGORIES ){
+				if( !category.equals( in.readUTF() ) ) return false;
+			}
+			return true;
+		}catch( EOFException e ){
+			return false;
+		}
+	}
+
+	private void writeRecord( GraphPoint point, DataOutputStream out ) throws IOException {
+		out.writeInt( point.getBuildNumber() );
+		out.writeLong( point.getTimestamp() );
+		out.writeInt( point.getBugCount() );
+		out.writeInt( point.getNewBugCount() );
+		out.writeInt( point.getFixedBugCount() );
+		int[] categoryCounts = point.getCategoryCounts();
+		for( int i = 0; i < CATEGORIES.length; i++ ){
+			out.writeInt( i < categoryCounts.length ? categoryCounts[i] : 0 );
+		}
+		out.flush();
+	}
+
+	private GraphPoint readRecord( DataInputStream in ) throws IOException {
+		int buildNumber = in.readInt();
+		long timestamp = in.readLong();
+		int bugCount = in.readInt();
+		int newBugCount = in.readInt();
+		int fixedBugCount = in.readInt();
+		int[] categoryCounts = new int[ CATEGORIES.length ];
+		for( int i = 0; i < CATEGORIES.length; i++ ){
+			categoryCounts[i] = in.readInt();
+		}
+		return new GraphPoint( buildNumber, timestamp, bugCount, newBugCount, fixedBugCount, categoryCounts );
+	}
+
+}
@@ -0,0 +1,236 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.publisher;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Matches source file paths against the comma separated 'Paths to exclude' setting of the publisher.
+ * 
+ * Plain entries are matched case-insensitively anywhere in the path.  They are compiled into a single
+ * Aho-Corasick automaton, so a path is checked against all of them in one pass over its characters
+ * without allocating.  Entries prefixed with 'glob:' are matched against the whole path ('**' matches
+ * across folders, '*' and '?' within a folder) and entries prefixed with 'regex:' are searched for in
+ * the path, both case-insensitively.
+ * 
+ * The compiled matcher is serializable so it can be sent to the node that parses the reports.
+ */
+public class ClangScanBuildExclusionMatcher implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String GLOB_PREFIX = "glob:";
+	public static final String REGEX_PREFIX = "regex:";
+
+	private static final ClangScanBuildExclusionMatcher EMPTY = new ClangScanBuildExclusionMatcher( new ArrayList<String>(), new ArrayList<String>(), new ArrayList<Pattern>() );
+
+	// Aho-Corasick automaton, state 0 is the root.  The children of a state are kept sorted by character.
+	private final char[][] childChars;
+	private final int[][] childStates;
+	private final int[] failure;
+	// index of a substring matched when this state is reached, or -1
+	private final int[] output;
+	private final String[] substrings;
+
+	private final String[] patternSources;
+	private final Pattern[] patterns;
+
+	/**
+	 * Compiles the comma separated exclusion setting.  Blank entries are ignored.
+	 * 
+	 * @throws IllegalArgumentException if a 'glob:' or 'regex:' entry is not a valid pattern, the message names the entry
+	 */
+	public static ClangScanBuildExclusionMatcher compile( String excludedPaths ){
+		if( excludedPaths == null || excludedPaths.trim().length() == 0 ) return EMPTY;
+
+		List<String> substrings = new ArrayList<String>();
+		List<String> patternSources = new ArrayList<String>();
+		List<Pattern> patterns = new ArrayList<Pattern>();
+		for( String token : excludedPaths.split( "," ) ){
+			String trimmedToken = token.trim();
+			if( trimmedToken.length() == 0 ) continue;
+
+			if( trimmedToken.startsWith( GLOB_PREFIX ) ){
+				patternSources.add( trimmedToken );
+				patterns.add( compilePattern( trimmedToken, globToRegex( trimmedToken.substring( GLOB_PREFIX.length() ) ) ) );
+			}else if( trimmedToken.startsWith( REGEX_PREFIX ) ){
+				patternSources.add( trimmedToken );
+				patterns.add( compilePattern( trimmedToken, trimmedToken.substring( REGEX_PREFIX.length() ) ) );
+			}else{
+				substrings.add( lowerCase( trimmedToken ) );
+			}
+		}
+		return new ClangScanBuildExclusionMatcher( substrings, patternSources, patterns );
+	}
+
+	private static Pattern compilePattern( String token, String regex ){
+		try{
+			return Pattern.compile( regex, Pattern.CASE_INSENSITIVE );
+		}catch( PatternSyntaxException e ){
+			throw new IllegalArgumentException( "Invalid exclusion pattern '" + token + "': " + e.getDescription() + " near index " + e.getIndex(), e );
+		}
+	}
+
+	private ClangScanBuildExclusionMatcher( List<String> substrings, List<String> patternSources, List<Pattern> patterns ){
+		this.substrings = substrings.toArray( new String[ substrings.size() ] );
+		this.patternSources = patternSources.toArray( new String[ patternSources.size() ] );
+		this.patterns = patterns.toArray( new Pattern[ patterns.size() ] );
+
+		// build the trie
+		List<TreeMap<Character,Integer>> children = new ArrayList<TreeMap<Character,Integer>>();
+		List<Integer> outputs = new ArrayList<Integer>();
+		children.add( new TreeMap<Character,Integer>() );
+		outputs.add( -1 );
+		for( int i = 0; i < this.substrings.length; i++ ){
+			String substring = this.substrings[i];
+			int state = 0;
+			for( int c = 0; c < substring.length(); c++ ){
+				Integer next = children.get( state ).get( substring.charAt( c ) );
+				if( next == null ){
+					next = children.size();
+					children.add( new TreeMap<Character,Integer>() );
+					outputs.add( -1 );
+					children.get( state ).put( substring.charAt( c ), next );
+				}
+				state = next;
+			}
+			if( outputs.get( state ) < 0 ) outputs.set( state, i );
+		}
+
+		int states = children.size();
+		childChars = new char[ states ][];
+		childStates = new int[ states ][];
+		failure = new int[ states ];
+		output = new int[ states ];
+		for( int state = 0; state < states; state++ ){
+			TreeMap<Character,Integer> stateChildren = children.get( state );
+			childChars[ state ] = new char[ stateChildren.size() ];
+			childStates[ state ] = new int[ stateChildren.size() ];
+			int i = 0;
+			for( Map.Entry<Character,Integer> child : stateChildren.entrySet() ){
+				childChars[ state ][ i ] = child.getKey();
+				childStates[ state ][ i ] = child.getValue();
+				i++;
+			}
+			output[ state ] = outputs.get( state );
+		}
+
+		// breadth first walk to compute the failure links, a state also reports the output of its failure state
+		LinkedList<Integer> queue = new LinkedList<Integer>();
+		for( int child : childStates[0] ){
+			failure[ child ] = 0;
+			queue.add( child );
+		}
+		while( !queue.isEmpty() ){
+			int state = queue.removeFirst();
+			for( int i = 0; i < childChars[ state ].length; i++ ){
+				char c = childChars[ state ][ i ];
+				int child = childStates[ state ][ i ];
+
+				int fallback = failure[ state ];
+				while( fallback != 0 && next( fallback, c ) < 0 ) fallback = failure[ fallback ];
+				int target = next( fallback, c );
+				failure[ child ] = ( target < 0 || target == child ) ? 0 : target;
+
+				if( output[ child ] < 0 ) output[ child ] = output[ failure[ child ] ];
+				queue.add( child );
+			}
+		}
+	}
+
+	public boolean isEmpty(){
+		return substrings.length == 0 && patterns.length == 0;
+	}
+
+	/**
+	 * Returns the exclusion entry that matches the path, or null if the path is not excluded.
+	 */
+	public String match( String sourceFile ){
+		if( sourceFile == null ) return null;
+
+		if( substrings.length > 0 ){
+			int state = 0;
+			for( int i = 0; i < sourceFile.length(); i++ ){
+				char c = Character.toLowerCase( sourceFile.charAt( i ) );
+				int target;
+				while( ( target = next( state, c ) ) < 0 && state != 0 ) state = failure[ state ];
+				state = ( target < 0 ) ? 0 : target;
+				if( output[ state ] >= 0 ) return substrings[ output[ state ] ];
+			}
+		}
+
+		for( int i = 0; i < patterns.length; i++ ){
+			boolean glob = patternSources[i].startsWith( GLOB_PREFIX );
+			if( glob ? patterns[i].matcher( sourceFile ).matches() : patterns[i].matcher( sourceFile ).find() ){
+				return patternSources[i];
+			}
+		}
+		return null;
+	}
+
+	private int next( int state, char c ){
+		char[] chars = childChars[ state ];
+		int low = 0;
+		int high = chars.length - 1;
+		while( low <= high ){
+			int middle = ( low + high ) >>> 1;
+			if( chars[ middle ] < c ) low = middle + 1;
+			else if( chars[ middle ] > c ) high = middle - 1;
+			else return childStates[ state ][ middle ];
+		}
+		return -1;
+	}
+
+	private static String lowerCase( String value ){
+		char[] chars = value.toCharArray();
+		for( int i = 0; i < chars.length; i++ ){
+			chars[i] = Character.toLowerCase( chars[i] );
+		}
+		return new String( chars );
+	}
+
+	private static String globToRegex( String glob ){
+		StringBuilder regex = new StringBuilder();
+		for( int i = 0; i < glob.length(); i++ ){
+			char c = glob.charAt( i );
+			if( c == '*' && i + 1 < glob.length() && glob.charAt( i + 1 ) == '*' ){
+				regex.append( ".*" );
+				i++;
+			}else if( c == '*' ){
+				regex.append( "[^/]*" );
+			}else if( c == '?' ){
+				regex.append( "[^/]" );
+			}else{
+				regex.append( Pattern.quote( String.valueOf( c ) ) );
+			}
+		}
+		return regex.toString();
+	}
+
+}
@@ -0,0 +1,291 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.publisher;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A minimal pull parser for JSON documents.  Jenkins core only ships json-lib which needs the whole
+ * document in memory, this reads one token at a time so SARIF files of any size can be streamed.
+ * 
+ * The API follows the usual pull style: beginObject()/endObject() and beginArray()/endArray() around
+ * containers, hasNext() to loop over their members, nextName() for member names and nextString()
+ * for scalar values (numbers and booleans are returned as their literal text).  skipValue() skips
+ * the next value including everything nested in it.
+ */
+public class ClangScanBuildJsonReader {
+
+	public enum Token { BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT }
+
+	private enum Scope { EMPTY_DOCUMENT, NONEMPTY_DOCUMENT, EMPTY_OBJECT, DANGLING_NAME, NONEMPTY_OBJECT, EMPTY_ARRAY, NONEMPTY_ARRAY }
+
+	private final Reader in;
+	private final char[] buffer = new char[ 8 * 1024 ];
+	private int position = 0;
+	private int limit = 0;
+
+	private final List<Scope> scopes = new ArrayList<Scope>();
+	private Token peeked;
+	private String peekedText;
+
+	public ClangScanBuildJsonReader( Reader in ){
+		super();
+		this.in = in;
+		scopes.add( Scope.EMPTY_DOCUMENT );
+	}
+
+	public void beginObject() throws IOException {
+		expect( Token.BEGIN_OBJECT );
+		scopes.add( Scope.EMPTY_OBJECT );
+	}
+
+	public void endObject() throws IOException {
+		expect( Token.END_OBJECT );
+		scopes.remove( scopes.size() - 1 );
+	}
+
+	public void beginArray() throws IOException {
+		expect( Token.BEGIN_ARRAY );
+		scopes.add( Scope.EMPTY_ARRAY );
+	}
+
+	public void endArray() throws IOException {
+		expect( Token.END_ARRAY );
+		scopes.remove( scopes.size() - 1 );
+	}
+
+	/**
+	 * Returns true if the current object or array has another member.
+	 */
+	public boolean hasNext() throws IOException {
+		Token token = peek();
+		return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+	}
+
+	public String nextName() throws IOException {
+		expect( Token.NAME );
+		return peekedTextAndConsume();
+	}
+
+	/**
+	 * Returns the next scalar value as text, or null for a JSON null.
+	 */
+	public String nextString() throws IOException {
+		Token token = peek();
+		if( token == Token.NULL ){
+			peeked = null;
+			return null;
+		}
+		if( token != Token.STRING && token != Token.NUMBER && token != Token.BOOLEAN ){
+			throw syntaxError( "Expected a value but found " + token );
+		}
+		return peekedTextAndConsume();
+	}
+
+	public void skipValue() throws IOException {
+		int depth = 0;
+		do{
+			Token token = peek();
+			if( token == Token.BEGIN_OBJECT ){
+				beginObject();
+				depth++;
+			}else if( token == Token.BEGIN_ARRAY ){
+				beginArray();
+				depth++;
+			}else if( token == Token.END_OBJECT ){
+				endObject();
+				depth--;
+			}else if( token == Token.END_ARRAY ){
+				endArray();
+				depth--;
+			}else if( token == Token.END_DOCUMENT ){
+				throw syntaxError( "Unexpected end of document" );
+			}else{
+				peeked = null;
+			}
+		}while( depth > 0 );
+	}
+
+	public Token peek() throws IOException {
+		if( peeked != null ) return peeked;
+
+		int last = scopes.size() - 1;
+		Scope scope = scopes.get( last );
+		int c;
+		switch( scope ){
+		case EMPTY_ARRAY:
+			scopes.set( last, Scope.NONEMPTY_ARRAY );
+			c = nextNonWhitespace();
+			if( c == ']' ) return peeked = Token.END_ARRAY;
+			if( c == -1 ) throw syntaxError( "Unexpected end of document" );
+			position--;
+			break;
+		case NONEMPTY_ARRAY:
+			c = nextNonWhitespace();
+			if( c == ']' ) return peeked = Token.END_ARRAY;
+			if( c != ',' ) throw syntaxError( "Expected ',' or ']'" );
+			break;
+		case EMPTY_OBJECT:
+		case NONEMPTY_OBJECT:
+			c = nextNonWhitespace();
+			if( c == '}' ) return peeked = Token.END_OBJECT;
+			if( scope == Scope.NONEMPTY_OBJECT ){
+				if( c != ',' ) throw syntaxError( "Expected ',' or '}'" );
+				c = nextNonWhitespace();
+			}
+			if( c != '"' ) throw syntaxError( "Expected a member name" );
+			scopes.set( last, Scope.DANGLING_NAME );
+			peekedText = readString();
+			return peeked = Token.NAME;
+		case DANGLING_NAME:
+			if( nextNonWhitespace() != ':' ) throw syntaxError( "Expected ':'" );
+			scopes.set( last, Scope.NONEMPTY_OBJECT );
+			break;
+		case EMPTY_DOCUMENT:
+			scopes.set( last, Scope.NONEMPTY_DOCUMENT );
+			break;
+		case NONEMPTY_DOCUMENT:
+			if( nextNonWhitespace() == -1 ) return peeked = Token.END_DOCUMENT;
+			throw syntaxError( "Unexpected content after the end of the document" );
+		}
+
+		return peeked = readValueToken();
+	}
+
+	private Token readValueToken() throws IOException {
+		int c = nextNonWhitespace();
+		switch( c ){
+		case '{':
+			return Token.BEGIN_OBJECT;
+		case '[':
+			return Token.BEGIN_ARRAY;
+		case '"':
+			peekedText = readString();
+			return Token.STRING;
+		case -1:
+			throw syntaxError( "Unexpected end of document" );
+		}
+
+		position--;
+		String literal = readLiteral();
+		if( "null".equals( literal ) ) return Token.NULL;
+		peekedText = literal;
+		if( "true".equals( literal ) || "false".equals( literal ) ) return Token.BOOLEAN;
+		if( literal.length() > 0 && ( literal.charAt( 0 ) == '-' || Character.isDigit( literal.charAt( 0 ) ) ) ) return Token.NUMBER;
+		throw syntaxError( "Unexpected value '" + literal + "'" );
+	}
+
+	private String readLiteral() throws IOException {
+		StringBuilder literal = new StringBuilder();
+		while( fill() ){
+			char c = buffer[ position ];
+			if( c == ',' || c == '}' || c == ']' || c == ':' || Character.isWhitespace( c ) ) break;
+			literal.append( c );
+			position++;
+		}
+		return literal.toString();
+	}
+
+	/**
+	 * Reads a string whose opening quote has already been consumed.
+	 */
+	private String readString() throws IOException {
+		StringBuilder value = new StringBuilder();
+		while( true ){
+			if( !fill() ) throw syntaxError( "Unterminated string" );
+			char c = buffer[ position++ ];
+			if( c == '"' ) return value.toString();
+			if( c != '\\' ){
+				value.append( c );
+				continue;
+			}
+
+			if( !fill() ) throw syntaxError( "Unterminated escape sequence" );
+			char escaped = buffer[ position++ ];
+			switch( escaped ){
+			case 'b': value.append( '\b' ); break;
+			case 'f': value.append( '\f' ); break;
+			case 'n': value.append( '\n' ); break;
+			case 'r': value.append( '\r' ); break;
+			case 't': value.append( '\t' ); break;
+			case 'u':
+				int code = 0;
+				for( int i = 0; i < 4; i++ ){
+					if( !fill() ) throw syntaxError( "Unterminated escape sequence" );
+					int digit = Character.digit( buffer[ position++ ], 16 );
+					if( digit < 0 ) throw syntaxError( "Invalid unicode escape" );
+					code = ( code << 4 ) | digit;
+				}
+				value.append( (char) code );
+				break;
+			default:
+				value.append( escaped );
+			}
+		}
+	}
+
+	private int nextNonWhitespace() throws IOException {
+		while( fill() ){
+			char c = buffer[ position++ ];
+			if( !Character.isWhitespace( c ) ) return c;
+		}
+		return -1;
+	}
+
+	/**
+	 * Makes sure at least one character is available in the buffer.  Returns false at the end of the stream.
+	 */
+	private boolean fill() throws IOException {
+		if( position < limit ) return true;
+		// keep the last character so position-- after reading it stays valid
+		if( limit > 0 ){
+			buffer[0] = buffer[ limit - 1 ];
+			position = 1;
+			limit = 1;
+		}
+		int read = in.read( buffer, limit, buffer.length - limit );
+		if( read <= 0 ) return false;
+		limit += read;
+		return true;
+	}
+
+	private void expect( Token expected ) throws IOException {
+		Token token = peek();
+		if( token != expected ) throw syntaxError( "Expected " + expected + " but found " + token );
+		peeked = null;
+	}
+
+	private String peekedTextAndConsume(){
+		String text = peekedText;
+		peeked = null;
+		peekedText = null;
+		return text;
+	}
+
+	private IOException syntaxError( String message ){
+		return new IOException( "Malformed JSON: " + message );
+	}
+
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.publisher;
+
+import hudson.XmlFile;
+import hudson.model.AbstractBuild;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildBug;
+
+/**
+ * Remembers the bug parsed from each scan-build report keyed by the report's path, size and modification time.
+ * Most reports are byte-identical from one build to the next, so with this cache only the reports
+ * that changed are parsed and sent back from the node.
+ * 
+ * The cache is stored in the job folder and holds at most maxEntries bugs.  When it is full, the
+ * least recently used entries are dropped.
+ */
+public class ClangScanBuildParseCache {
+
+	private static final Logger LOGGER = Logger.getLogger( ClangScanBuildParseCache.class.getName() );
+
+	public static final String CACHE_FILE_NAME = "clangScanBuildParseCache.xml";
+
+	private final XmlFile file;
+	private final LinkedHashMap<String,ClangScanBuildBug> entries;
+	private int hits;
+	private int misses;
+
+	private ClangScanBuildParseCache( XmlFile file, final int maxEntries ){
+		super();
+		this.file = file;
+		this.entries = new LinkedHashMap<String,ClangScanBuildBug>( 16, 0.75f, true ){
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry( Map.Entry<String,ClangScanBuildBug> eldest ){
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Loads the cache stored in the given job folder.  A missing or unreadable cache file
+	 * results in an empty cache.
+	 */
+	public static ClangScanBuildParseCache load( File projectRootDir, int maxEntries ){
+		ClangScanBuildParseCache cache = new ClangScanBuildParseCache( new XmlFile( AbstractBuild.XSTREAM, new File( projectRootDir, CACHE_FILE_NAME ) ), maxEntries );
+		if( !cache.file.exists() ) return cache;
+
+		try{
+			synchronized( ClangScanBuildParseCache.class ){
+				Entry[] stored = (Entry[]) cache.file.read();
+				// entries are stored least recently used first, so re-adding them restores the order
+				for( Entry entry : stored ){
+					cache.entries.put( entry.key, entry.bug );
+				}
+			}
+		}catch( IOException e ){
+			LOGGER.log( Level.WARNING, "Unable to read clang scan-build parse cache: " + cache.file, e );
+		}catch( ClassCastException e ){
+			LOGGER.log( Level.WARNING, "Unable to read clang scan-build parse cache: " + cache.file, e );
+		}
+		return cache;
+	}
+
+	public void save() throws IOException {
+		List<Entry> stored = new ArrayList<Entry>( entries.size() );
+		for( Map.Entry<String,ClangScanBuildBug> entry : entries.entrySet() ){
+			stored.add( new Entry( entry.getKey(), entry.getValue() ) );
+		}
+
+		synchronized( ClangScanBuildParseCache.class ){
+			file.write( stored.toArray( new Entry[ stored.size() ] ) );
+		}
+	}
+
+	/**
+	 * The keys sent to the node so it can skip reading the reports that are already cached.
+	 */
+	public Set<String> getKeys(){
+		return new HashSet<String>( entries.keySet() );
+	}
+
+	/**
+	 * Turns the results returned by the node into bugs.  Results that were not parsed are looked up
+	 * in the cache and results that were parsed are added to it.  Every returned bug is a new instance
+	 * so the bugs in the cache are never modified by the caller.
+	 */
+	public List<ClangScanBuildBug> resolve( List<ClangScanBuildReportResult> results ){
+		List<ClangScanBuildBug> bugs = new ArrayList<ClangScanBuildBug>( results.size() );
+
+		// cached entries are all looked up before anything is added, so adding can not evict them
+		for( ClangScanBuildReportResult result : results ){
+			if( result.getBug() != null ){
+				bugs.add( result.getBug() );
+				continue;
+			}
+
+			ClangScanBuildBug cached = entries.get( result.getKey() );
+			if( cached == null ){
+				// the node only skips reports whose key was in the cache when it was asked
+				throw new IllegalStateException( "Clang report " + result.getReportFile() + " is not in the parse cache" );
+			}
+			ClangScanBuildBug bug = new ClangScanBuildBug( cached );
+			bug.setReportFile( result.getReportFile() );
+			bugs.add( bug );
+			hits++;
+		}
+
+		for( ClangScanBuildReportResult result : results ){
+			if( result.getBug() == null || result.getKey() == null ) continue;
+
+			ClangScanBuildBug cached = new ClangScanBuildBug( result.getBug() );
+			cached.setReportFile( null );
+			entries.put( result.getKey(), cached );
+			misses++;
+		}
+
+		return bugs;
+	}
+
+	public int getHits(){
+		return hits;
+	}
+
+	public int getMisses(){
+		return misses;
+	}
+
+	private static class Entry {
+
+		private String key;
+		private ClangScanBuildBug bug;
+
+		public Entry( String key, ClangScanBuildBug bug ){
+			super();
+			this.key = key;
+			this.bug = bug;
+		}
+
+	}
+
+}
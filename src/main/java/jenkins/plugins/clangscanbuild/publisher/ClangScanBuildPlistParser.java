@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.publisher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildBug;
+
+/**
+ * Reads the plist files written by scan-build when it is run with -plist or -plist-html.  The file
+ * is streamed with a StAX pull parser, so only the diagnostic being read is held in memory.  Each
+ * diagnostic becomes a bug carrying the checker name, the issue hash and the number of events on its
+ * path.
+ * 
+ * Diagnostics refer to their source file by index into the 'files' array which clang writes after
+ * the diagnostics.  The bugs of a plist are therefore returned once the whole file has been read.
+ */
+public class ClangScanBuildPlistParser implements ClangScanBuildBugParser {
+
+	private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+	static{
+		// plist files declare the Apple DTD, it must never be fetched
+		XML_INPUT_FACTORY.setProperty( XMLInputFactory.SUPPORT_DTD, Boolean.FALSE );
+		XML_INPUT_FACTORY.setProperty( XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE );
+	}
+
+	/**
+	 * Parses a plist stream.  The stream is not closed.
+	 */
+	public List<ClangScanBuildBug> parse( InputStream plist ) throws IOException {
+		List<ClangScanBuildBug> bugs = new ArrayList<ClangScanBuildBug>();
+		List<Integer> fileIndexes = new ArrayList<Integer>();
+		List<String> files = new ArrayList<String>();
+
+		XMLStreamReader reader = null;
+		try{
+			synchronized( XML_INPUT_FACTORY ){
+				reader = XML_INPUT_FACTORY.createXMLStreamReader( plist );
+			}
+
+			// <plist><dict>, nextTag() can not be used to find the root because of the DOCTYPE
+			int event = reader.getEventType();
+			while( event != XMLStreamConstants.START_ELEMENT && reader.hasNext() ){
+				event = reader.next();
+			}
+			if( event != XMLStreamConstants.START_ELEMENT || reader.nextTag() != XMLStreamConstants.START_ELEMENT || !"dict".equals( reader.getLocalName() ) ){
+				throw new IOException( "Not a clang plist: missing root dictionary" );
+			}
+
+			String key;
+			while( ( key = nextKey( reader ) ) != null ){
+				if( "diagnostics".equals( key ) ){
+					while( nextArrayItem( reader ) ){
+						bugs.add( readDiagnostic( reader, fileIndexes ) );
+					}
+				}else if( "files".equals( key ) ){
+					while( nextArrayItem( reader ) ){
+						files.add( reader.getElementText() );
+					}
+				}else{
+					skipValue( reader );
+				}
+			}
+		}catch( XMLStreamException e ){
+			throw new IOException( "Unable to parse clang plist: " + e.getMessage(), e );
+		}finally{
+			close( reader );
+		}
+
+		for( int i = 0; i < bugs.size(); i++ ){
+			int fileIndex = fileIndexes.get( i );
+			if( fileIndex >= 0 && fileIndex < files.size() ){
+				bugs.get( i ).setSourceFile( files.get( fileIndex ) );
+			}
+		}
+		return bugs;
+	}
+
+	/**
+	 * Reads one entry of the diagnostics array.  The reader is positioned on its dict element.
+	 */
+	private ClangScanBuildBug readDiagnostic( XMLStreamReader reader, List<Integer> fileIndexes ) throws XMLStreamException {
+		ClangScanBuildBug bug = new ClangScanBuildBug();
+		int fileIndex = -1;
+
+		String key;
+		while( ( key = nextKey( reader ) ) != null ){
+			if( "description".equals( key ) ){
+				bug.setBugDescription( reader.getElementText() );
+			}else if( "category".equals( key ) ){
+				bug.setBugCategory( reader.getElementText() );
+			}else if( "type".equals( key ) ){
+				bug.setBugType( reader.getElementText() );
+			}else if( "check_name".equals( key ) ){
+				bug.setCheckerName( reader.getElementText() );
+			}else if( "issue_context".equals( key ) ){
+				bug.setFunctionName( reader.getElementText() );
+			}else if( "issue_hash_content_of_line_in_context".equals( key ) ){
+				bug.setIssueHash( ClangScanBuildBug.parseIssueHash( reader.getElementText() ) );
+			}else if( "location".equals( key ) ){
+				String locationKey;
+				while( ( locationKey = nextKey( reader ) ) != null ){
+					if( "line".equals( locationKey ) ){
+						bug.setBugLine( ClangScanBuildBug.parseNumber( reader.getElementText() ) );
+					}else if( "col".equals( locationKey ) ){
+						bug.setBugColumn( ClangScanBuildBug.parseNumber( reader.getElementText() ) );
+					}else if( "file".equals( locationKey ) ){
+						fileIndex = parseIndex( reader.getElementText() );
+					}else{
+						skipValue( reader );
+					}
+				}
+			}else if( "path".equals( key ) ){
+				bug.setBugPathLength( countPathEvents( reader ) );
+			}else if( "HTMLDiagnostics_files".equals( key ) ){
+				while( nextArrayItem( reader ) ){
+					String report = reader.getElementText();
+					if( bug.getReportFile() == null ) bug.setReportFile( report );
+				}
+			}else{
+				skipValue( reader );
+			}
+		}
+
+		fileIndexes.add( fileIndex );
+		return bug;
+	}
+
+	/**
+	 * Counts the pieces of kind 'event' on the path, these are the numbered steps shown in the HTML report.
+	 */
+	private int countPathEvents( XMLStreamReader reader ) throws XMLStreamException {
+		int events = 0;
+		while( nextArrayItem( reader ) ){
+			if( !"dict".equals( reader.getLocalName() ) ){
+				skipValue( reader );
+				continue;
+			}
+
+			String key;
+			while( ( key = nextKey( reader ) ) != null ){
+				if( "kind".equals( key ) ){
+					if( "event".equals( reader.getElementText() ) ) events++;
+				}else{
+					skipValue( reader );
+				}
+			}
+		}
+		return events;
+	}
+
+	/**
+	 * Moves to the next key of the current dict and then onto the start of its value.  Returns null
+	 * once the end of the dict has been reached.
+	 */
+	private String nextKey( XMLStreamReader reader ) throws XMLStreamException {
+		if( reader.nextTag() == XMLStreamConstants.END_ELEMENT ) return null;
+		if( !"key".equals( reader.getLocalName() ) ){
+			throw new XMLStreamException( "Expected a plist key but found " + reader.getLocalName(), reader.getLocation() );
+		}
+		String key = reader.getElementText();
+		reader.nextTag();
+		return key;
+	}
+
+	/**
+	 * Moves onto the start of the next value in the current array.  Returns false once the end of the
+	 * array has been reached.
+	 */
+	private boolean nextArrayItem( XMLStreamReader reader ) throws XMLStreamException {
+		return reader.nextTag() == XMLStreamConstants.START_ELEMENT;
+	}
+
+	/**
+	 * Skips the value the reader is positioned on, including any nested elements.
+	 */
+	private void skipValue( XMLStreamReader reader ) throws XMLStreamException {
+		int depth = 1;
+		while( depth > 0 ){
+			int event = reader.next();
+			if( event == XMLStreamConstants.START_ELEMENT ) depth++;
+			else if( event == XMLStreamConstants.END_ELEMENT ) depth--;
+		}
+	}
+
+	private int parseIndex( String value ){
+		try{
+			return Integer.parseInt( value.trim() );
+		}catch( NumberFormatException e ){
+			return -1;
+		}
+	}
+
+	private void close( XMLStreamReader reader ){
+		if( reader == null ) return;
+		try{
+			reader.close();
+		}catch( XMLStreamException e ){
+			// nothing to do, the underlying stream is closed by the caller
+		}
+	}
+
+}
@@ -31,46 +31,51 @@ import hudson.model.BuildListener;
 import hudson.model.Result;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
+import hudson.remoting.Pipe;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Recorder;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
 
+import jenkins.plugins.clangscanbuild.ClangScanBuildReportCompressor;
+import jenkins.plugins.clangscanbuild.ClangScanBuildReportStore;
 import jenkins.plugins.clangscanbuild.ClangScanBuildUtils;
 import jenkins.plugins.clangscanbuild.actions.ClangScanBuildAction;
 import jenkins.plugins.clangscanbuild.actions.ClangScanBuildProjectAction;
 import jenkins.plugins.clangscanbuild.history.ClangScanBuildBug;
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildBugAggregates;
 import jenkins.plugins.clangscanbuild.history.ClangScanBuildBugSummary;
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildBugSummaryCache;
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildBugSummaryFile;
 
-public class ClangScanBuildPublisher extends Recorder{
+import org.apache.commons.io.input.CountingInputStream;
 
-	private static final Logger LOGGER = Logger.getLogger( ClangScanBuildPublisher.class.getName() );
+public class ClangScanBuildPublisher extends Recorder{
 
 	@Extension
 	public static final ClangScanBuildPublisherDescriptor DESCRIPTOR = new ClangScanBuildPublisherDescriptor();
 
-	private static final Pattern BUG_TYPE_PATTERN = Pattern.compile( "<!--\\sBUGTYPE\\s(.*)\\s-->" );
-	private static final Pattern BUG_DESC_PATTERN = Pattern.compile( "<!--\\sBUGDESC\\s(.*)\\s-->" );
-	private static final Pattern BUGFILE_PATTERN = Pattern.compile( "<!--\\sBUGFILE\\s(.*)\\s-->" );
-	private static final Pattern BUGCATEGORY_PATTERN = Pattern.compile( "<!--\\sBUGCATEGORY\\s(.*)\\s-->" );
-	private static final Pattern FUNCTIONNAME_PATTERN = Pattern.compile( "<!--\\sFUNCTONNAME\\s(.*)\\s-->" );
-	private static final Pattern BUGLINE_PATTERN = Pattern.compile( "<!--\\sBUGLINE\\s(.*)\\s-->" );
-	private static final Pattern BUGCOLUMN_PATTERN = Pattern.compile( "<!--\\sBUGCOLUMN\\s(.*)\\s-->" );
-	private static final Pattern BUGPATHLENGTH_PATTERN = Pattern.compile( "<!--\\sBUGPATHLENGTH\\s(.*)\\s-->" );
-
 	private int bugThreshold;
 	private String clangexcludedpaths; 
 	private String reportFolderName;
+	private int parseParallelism;
+	private int parseCacheSize;
+	private String reportFormat;
+	private int transferCompressionLevel;
+	private boolean deduplicateReports;
+	private boolean compressReports;
 
 	private boolean markBuildUnstableWhenThresholdIsExceeded;
 
+	private transient ClangScanBuildExclusionMatcher exclusionMatcher;
+
 	public ClangScanBuildPublisher( 
 			boolean markBuildUnstableWhenThresholdIsExceeded, 
 			int bugThreshold,
@@ -99,6 +104,7 @@ public class ClangScanBuildPublisher extends Recorder{
 
 	public void setClangexcludedpaths(String clangExcludePaths){
 		this.clangexcludedpaths = Util.fixNull(clangExcludePaths);
+		this.exclusionMatcher = null;
 	}
 
 	public void setReportFolderName(String folderName){
@@ -109,6 +115,81 @@ public class ClangScanBuildPublisher extends Recorder{
 		return reportFolderName;
 	}
 
+	/**
+	 * Number of threads used on the node to parse the scan-build reports.  Values of one
+	 * or less (including jobs configured before this option existed) parse sequentially.
+	 */
+	public int getParseParallelism(){
+		return parseParallelism;
+	}
+
+	public void setParseParallelism(int parseParallelism){
+		this.parseParallelism = parseParallelism;
+	}
+
+	/**
+	 * Which scan-build output is parsed: the HTML reports, or the plist or SARIF files written when
+	 * scan-build runs with -plist, -plist-html or -sarif.  Jobs configured before this option existed
+	 * parse HTML.
+	 */
+	public String getReportFormat(){
+		if( reportFormat == null ) return ClangScanBuildReportCollector.FORMAT_HTML;
+		return reportFormat;
+	}
+
+	public void setReportFormat(String reportFormat){
+		this.reportFormat = Util.fixEmptyAndTrim(reportFormat);
+	}
+
+	/**
+	 * Maximum number of parsed reports remembered between builds of the job.  Zero (the default
+	 * for jobs configured before this option existed) disables the cache.
+	 */
+	public int getParseCacheSize(){
+		return parseCacheSize;
+	}
+
+	public void setParseCacheSize(int parseCacheSize){
+		this.parseCacheSize = parseCacheSize;
+	}
+
+	/**
+	 * Gzip level (1 to 9) of the tar stream the reports are sent to the master in, the transfer is then also
+	 * logged.  Zero (the default for jobs configured before this option existed) copies the reports with
+	 * FilePath.copyRecursiveTo, which sends the same kind of stream at the default gzip level.
+	 */
+	public int getTransferCompressionLevel(){
+		return transferCompressionLevel;
+	}
+
+	/**
+	 * Whether the reports on the master are hard links into the job's ClangScanBuildReportStore, so a report
+	 * that is identical across builds is only stored once.
+	 */
+	public boolean isDeduplicateReports(){
+		return deduplicateReports;
+	}
+
+	public void setDeduplicateReports(boolean deduplicateReports){
+		this.deduplicateReports = deduplicateReports;
+	}
+
+	/**
+	 * Whether the HTML reports are stored gzipped on the master.  They are decompressed when browsed
+	 * unless the browser accepts them gzipped.
+	 */
+	public boolean isCompressReports(){
+		return compressReports;
+	}
+
+	public void setCompressReports(boolean compressReports){
+		this.compressReports = compressReports;
+	}
+
+	public void setTransferCompressionLevel(int transferCompressionLevel){
+		this.transferCompressionLevel = Math.max( 0, Math.min( Deflater.BEST_COMPRESSION, transferCompressionLevel ) );
+	}
+
 
 	@Override
 	public Action getProjectAction( AbstractProject<?, ?> project ){
@@ -128,11 +209,29 @@ public class ClangScanBuildPublisher extends Recorder{
 		return clangexcludedpaths;
 	}
 
+	private ClangScanBuildExclusionMatcher getExclusionMatcher(){
+		ClangScanBuildExclusionMatcher matcher = exclusionMatcher;
+		if( matcher == null ){
+			matcher = ClangScanBuildExclusionMatcher.compile( clangexcludedpaths );
+			exclusionMatcher = matcher;
+		}
+		return matcher;
+	}
+
 	@Override
 	public boolean perform( AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener ) throws InterruptedException, IOException {
 
 		listener.getLogger().println( "Publishing Clang scan-build results" );
 
+		ClangScanBuildExclusionMatcher exclusionMatcher;
+		try{
+			exclusionMatcher = getExclusionMatcher();
+		}catch( IllegalArgumentException e ){
+			listener.error( "Unable to publish Clang scan-build results, check the paths to exclude. " + e.getMessage() );
+			build.setResult( Result.FAILURE );
+			return false;
+		}
+
 		// Expand build variables in the reportFolderName
 		EnvVars env = build.getEnvironment(listener);
 		String expandedReportFolderName = env.expand(reportFolderName);
@@ -146,8 +245,18 @@ public class ClangScanBuildPublisher extends Recorder{
 		// This copies the report dir to master
 		copyClangReportsToMaster( reportOutputFolder, reportMasterOutputFolder, listener );
 
-		// this digs into the clang results looking for the subfolder created by clang
-		List<FilePath> clangReports = locateClangBugReports( reportOutputFolder );
+		// This gzips the reports on master, before they are deduplicated so the compressed reports are shared
+		if( compressReports ){
+			compressClangReports( reportMasterOutputFolder, listener );
+		}
+
+		// This replaces the reports on master that an earlier build already stored by links to the stored copy
+		if( deduplicateReports ){
+			deduplicateClangReports( build, reportMasterOutputFolder, listener );
+		}
+
+		// this parses the clang reports on the node that produced them and only brings back the bugs
+		List<ClangScanBuildBug> clangBugs = collectClangBugs( build, reportOutputFolder, exclusionMatcher, listener );
 
 		// this loads the previous bug summary for the last build.  it is need to identify bugs added since last build
 		ClangScanBuildBugSummary previousBugSummary = getBugSummaryForLastBuild( build );
@@ -155,36 +264,28 @@ public class ClangScanBuildPublisher extends Recorder{
 		// this builds and new bug summary and populates it with bugs
 		ClangScanBuildBugSummary newBugSummary = new ClangScanBuildBugSummary( build.number );
 
-	String[] tokens = new String[0];
-	if(this.getClangexcludedpaths().length() > 0){
-	  tokens = this.getClangexcludedpaths().split(",");
-	}
-
-	for( FilePath report : clangReports ){
-	  // bugs are parsed inside this method:
-	  ClangScanBuildBug bug = createBugFromClangScanBuildHtml( build.getProject().getName(), report, previousBugSummary, build.getWorkspace().getRemote() );
-	  boolean validBug = true;
-	  for(String token:tokens){
-		String trimmedToken = token.trim().toLowerCase();
-		if(bug.sourceFile.toLowerCase().contains(trimmedToken)){
-			listener.getLogger().println( "Skipping file: " + bug.sourceFile + " because it matches exclusion pattern: " + trimmedToken );
-			validBug = false;
-			break;
+		// bugs in excluded paths have already been dropped by the collector
+		for( ClangScanBuildBug bug : clangBugs ){
+			markNewBug( bug, previousBugSummary );
 		}
-	  }
-	  if(validBug) {
-		newBugSummary.add( bug );
-	  }
-	}
+		newBugSummary.addBugs( clangBugs );
 
-		// this line dumps a bugSummary.xml file to the build artifacts.  did this instead of using job config xml for performance
-		//FilePath bugSummaryXMLFile = new FilePath( reportOutputFolder, "bugSummary.xml" );
-		FilePath bugSummaryXMLFile = new FilePath( new FilePath( build.getRootDir() ), "bugSummary.xml" );
-		String bugSummaryXML = AbstractBuild.XSTREAM.toXML( newBugSummary );
-		bugSummaryXMLFile.write( bugSummaryXML, "UTF-8" );
+		// this line dumps the bug summary file to the build artifacts.  did this instead of using job config xml for performance
+		FilePath bugSummaryXMLFile = new FilePath( new FilePath( build.getRootDir() ), ClangScanBuildBugSummaryFile.FILENAME );
+		OutputStream bugSummaryOut = bugSummaryXMLFile.write();
+		try{
+			ClangScanBuildBugSummaryFile.write( newBugSummary, bugSummaryOut );
+		}finally{
+			bugSummaryOut.close();
+		}
+		ClangScanBuildBugSummaryCache.getInstance().put( ClangScanBuildBugSummaryCache.keyFor( build ), newBugSummary );
+
+		// this counts the bugs by category and type once, the trends are drawn from these counts
+		ClangScanBuildBugAggregates aggregates = ClangScanBuildBugAggregates.compute( newBugSummary, previousBugSummary == null ? -1 : previousBugSummary.getBugCount() );
 
 		// this adds a build actions which records the bug count into the build results.  This count is used to generate the trend charts
 		final ClangScanBuildAction action = new ClangScanBuildAction( build, newBugSummary.getBugCount(), markBuildUnstableWhenThresholdIsExceeded, bugThreshold, bugSummaryXMLFile, expandedReportFolderName );
+        action.setAggregates( aggregates );
         build.addAction( action );
 
         // this checks if the build should be failed due to an increase in bugs
@@ -196,15 +297,51 @@ public class ClangScanBuildPublisher extends Recorder{
 		return true;
 	}
 
-	private ClangScanBuildBug createBugFromClangScanBuildHtml( String projectName, FilePath report, ClangScanBuildBugSummary previousBugSummary, String workspacePath ) throws InterruptedException {
-		ClangScanBuildBug bug = createBugInstance( projectName, report, workspacePath );
+	/**
+	 * When the parse cache is enabled, the node skips the HTML reports whose key is already cached and
+	 * their bugs are taken from the cache instead.  Plist and SARIF files hold many bugs each and are always parsed.
+	 * The node never read the skipped reports, so their bugs are checked against the exclusions here.
+	 */
+	private List<ClangScanBuildBug> collectClangBugs( AbstractBuild<?, ?> build, FilePath reportOutputFolder, ClangScanBuildExclusionMatcher exclusionMatcher, BuildListener listener ) throws IOException, InterruptedException {
+		String workspacePath = build.getWorkspace().getRemote();
+
+		if( parseCacheSize <= 0 || !ClangScanBuildReportCollector.FORMAT_HTML.equals( getReportFormat() ) ){
+			List<ClangScanBuildReportResult> results = reportOutputFolder.act( new ClangScanBuildReportCollector( workspacePath, getReportFormat(), parseParallelism, null, exclusionMatcher, listener ) );
+			List<ClangScanBuildBug> bugs = new ArrayList<ClangScanBuildBug>( results.size() );
+			for( ClangScanBuildReportResult result : results ){
+				bugs.add( result.getBug() );
+			}
+			return bugs;
+		}
+
+		ClangScanBuildParseCache parseCache = ClangScanBuildParseCache.load( build.getProject().getRootDir(), parseCacheSize );
+		List<ClangScanBuildReportResult> results = reportOutputFolder.act( new ClangScanBuildReportCollector( workspacePath, getReportFormat(), parseParallelism, parseCache.getKeys(), exclusionMatcher, listener ) );
+		List<ClangScanBuildBug> bugs = new ArrayList<ClangScanBuildBug>( results.size() );
+		for( ClangScanBuildBug bug : parseCache.resolve( results ) ){
+			String exclusion = exclusionMatcher.match( bug.getSourceFile() );
+			if( exclusion == null ){
+				bugs.add( bug );
+			}else{
+				listener.getLogger().println( "Skipping file: " + bug.getSourceFile() + " because it matches exclusion pattern: " + exclusion );
+			}
+		}
+		listener.getLogger().println( "Clang scan-build parse cache: " + parseCache.getHits() + " hits, " + parseCache.getMisses() + " misses" );
+
+		try{
+			parseCache.save();
+		}catch( IOException e ){
+			listener.getLogger().println( "Unable to save Clang scan-build parse cache: " + e.getMessage() );
+		}
+		return bugs;
+	}
+
 
+	private void markNewBug( ClangScanBuildBug bug, ClangScanBuildBugSummary previousBugSummary ){
 		// this checks to see if the bug is new since the last build
 		if(bug != null && previousBugSummary != null ){
 			// This marks bugs as new if they did not exist in the last build report
 			bug.setNewBug( !previousBugSummary.contains( bug ) );
 		}
-		return bug;
 	}
 
 	private ClangScanBuildBugSummary getBugSummaryForLastBuild( AbstractBuild<?, ?> build) {
@@ -238,10 +375,13 @@ public class ClangScanBuildPublisher extends Recorder{
 				return;
 			}
 
+			// the reports are renamed into place on the node, they are only copied if the folders are on different devices
 			for (FilePath clangDataFolder : subFolders) {
-                            clangDataFolder.copyRecursiveTo( reportsFolder );
-                            clangDataFolder.deleteRecursive();
-                        }
+				int copied = clangDataFolder.act( new ClangScanBuildReportRelocator() );
+				if( copied > 0 ){
+					listener.getLogger().println( "Copied " + copied + " entries out of " + clangDataFolder + " because they could not be moved" );
+				}
+			}
 		}catch( Exception e ){
 			listener.fatalError( "Unable to copy Clang scan-build output (" + reportsFolder + ") to build archive folder." );
 		}
@@ -251,78 +391,58 @@ public class ClangScanBuildPublisher extends Recorder{
 	 */
 	private void copyClangReportsToMaster( FilePath reportsFolder, FilePath materPath, BuildListener listener ){
 		try{
-			reportsFolder.copyRecursiveTo( materPath );
+			if( transferCompressionLevel > 0 && reportsFolder.isRemote() ){
+				packClangReportsToMaster( reportsFolder, materPath, listener );
+			}else{
+				reportsFolder.copyRecursiveTo( materPath );
+			}
 		}catch( Exception e ){
 			listener.fatalError( "Unable to copy Clang scan-build output to master." );
 		}
 	}
 
-	/**
-	 * This method creates a bug instance from scan-build HMTL report.  It does this by using reg-ex searches
-	 * to located HTML comments in the file which are easily parseable and appear in every HTML bug report from
-	 * scan-build.  If scan-build ever adds an XML option, this functionality can be replaced with an XML parsing
-	 * routine.
-	 */
-	private ClangScanBuildBug createBugInstance( String projectName, FilePath report, String workspacePath) throws InterruptedException {
-		// the report parameter is the file the points to an HTML report generated by clang
-		ClangScanBuildBug instance = new ClangScanBuildBug();
-		String basePath = "StaticAnalyzer/";
-		String reportPath = report.getRemote();
-
-		int baseIdx = reportPath.indexOf(basePath);
-		if(baseIdx > -1) {
-			reportPath = reportPath.substring(baseIdx, reportPath.length());
-		} else {
-			reportPath = report.getName();
-		}
-
-		instance.setReportFile( reportPath );//( report.getName() );
-
-		String contents = null;
-		try {
-			// this code digs into the HTML report content to locate the bug markers using regex
-			contents = report.readToString();
-			instance.setBugDescription( getMatch( BUG_DESC_PATTERN, contents ) );
-			instance.setBugType( getMatch( BUG_TYPE_PATTERN, contents ) );
-			instance.setBugCategory( getMatch( BUGCATEGORY_PATTERN, contents ) );
-                        instance.setFunctionName( getMatch( FUNCTIONNAME_PATTERN, contents ) );
-                        instance.setBugLine( getMatch( BUGLINE_PATTERN, contents ) );
-                        instance.setBugColumn( getMatch( BUGCOLUMN_PATTERN, contents ) );
-                        instance.setBugPathLength( getMatch( BUGPATHLENGTH_PATTERN, contents ) );
-
-			String sourceFile = getMatch( BUGFILE_PATTERN, contents );
-
-			// This attempts to shorten the file path by removing the workspace path and
-			// leaving only the path relative to the workspace.
-			int position = sourceFile.lastIndexOf( workspacePath );
-			if( position >= 0 ){
-				sourceFile = sourceFile.substring( position + workspacePath.length() );
-			}
-
-			instance.setSourceFile( sourceFile );
+	private void compressClangReports( FilePath reportMasterOutputFolder, BuildListener listener ){
+		ClangScanBuildReportCompressor compressor = new ClangScanBuildReportCompressor();
+		try{
+			compressor.compress( new File( reportMasterOutputFolder.getRemote() ) );
+			listener.getLogger().println( "Compressed Clang scan-build reports from " + compressor.getUncompressedBytes() + " to " + compressor.getCompressedBytes() + " bytes" );
 		}catch( IOException e ){
-			LOGGER.log( Level.ALL, "Unable to read file or locate clang markers in content: " + report );
+			listener.getLogger().println( "Unable to compress Clang scan-build reports: " + e.getMessage() );
 		}
-
-		return instance;
 	}
 
-	private String getMatch( Pattern pattern, String contents ){
-		Matcher matcher = pattern.matcher( contents );
-		while( matcher.find() ){
-			return matcher.group(1);
+	private void deduplicateClangReports( AbstractBuild<?, ?> build, FilePath reportMasterOutputFolder, BuildListener listener ){
+		ClangScanBuildReportStore store = new ClangScanBuildReportStore( build.getProject().getRootDir() );
+		try{
+			store.deduplicate( new File( reportMasterOutputFolder.getRemote() ) );
+			listener.getLogger().println( "Clang scan-build report store: " + store.getLinkedFiles() + " reports already stored, " + store.getStoredFiles() + " added" );
+		}catch( IOException e ){
+			listener.getLogger().println( "Unable to deduplicate Clang scan-build reports: " + e.getMessage() );
 		}
-		return null;
 	}
 
 	/**
-	 * This locates all the generated HTML bug reports from scan-build and returns them as a list.
+	 * Does what FilePath.copyRecursiveTo does for a remote folder, packing the reports into one gzipped tar
+	 * stream on the node and unpacking it on the master as it arrives, but at the configured gzip level and
+	 * counting the bytes so the transfer can be logged.
 	 */
-	protected List<FilePath> locateClangBugReports( FilePath clangOutputFolder ) throws IOException, InterruptedException {
-		List<FilePath> files = new ArrayList<FilePath>();
-		if( !clangOutputFolder.exists() ) return files;
-        files.addAll( Arrays.asList( clangOutputFolder.list( "**/report-*.html" ) ) );
-        return files;
+	private void packClangReportsToMaster( FilePath reportsFolder, FilePath materPath, BuildListener listener ) throws IOException, InterruptedException, ExecutionException {
+		long start = System.currentTimeMillis();
+
+		Pipe pipe = Pipe.createRemoteToLocal();
+		Future<Long> packed = reportsFolder.actAsync( new ClangScanBuildReportPacker( pipe, transferCompressionLevel ) );
+		CountingInputStream received = new CountingInputStream( pipe.getIn() );
+		try{
+			materPath.untarFrom( received, FilePath.TarCompression.GZIP );
+		}finally{
+			received.close();
+		}
+		long uncompressedBytes = packed.get();
+
+		long sentBytes = received.getByteCount();
+		double ratio = sentBytes == 0 ? 0 : (double) uncompressedBytes / sentBytes;
+		listener.getLogger().println( String.format( "Sent Clang scan-build reports to master: %d bytes (%d uncompressed, ratio %.1f:1) in %d ms",
+				sentBytes, uncompressedBytes, ratio, System.currentTimeMillis() - start ) );
 	}
 
 }
@@ -24,11 +24,14 @@ package jenkins.plugins.clangscanbuild.publisher;
 import jenkins.plugins.clangscanbuild.ClangScanBuildUtils;
 import net.sf.json.JSONObject;
 
+import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 
 import hudson.model.AbstractProject;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.Publisher;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
 
 
 public class ClangScanBuildPublisherDescriptor extends BuildStepDescriptor<Publisher>{
@@ -55,7 +58,31 @@ public class ClangScanBuildPublisherDescriptor extends BuildStepDescriptor<Publi
 
 		reportFolderName = json.getString("reportFolderName");
 
-		return new ClangScanBuildPublisher( markBuildUnstable, bugThreshold, excludedPaths, reportFolderName );
+		ClangScanBuildPublisher publisher = new ClangScanBuildPublisher( markBuildUnstable, bugThreshold, excludedPaths, reportFolderName );
+		publisher.setParseParallelism( json.optInt( "parseParallelism", 1 ) );
+		publisher.setParseCacheSize( json.optInt( "parseCacheSize", 0 ) );
+		publisher.setReportFormat( json.optString( "reportFormat", ClangScanBuildReportCollector.FORMAT_HTML ) );
+		publisher.setTransferCompressionLevel( json.optInt( "transferCompressionLevel", 0 ) );
+		publisher.setDeduplicateReports( json.optBoolean( "deduplicateReports", false ) );
+		publisher.setCompressReports( json.optBoolean( "compressReports", false ) );
+		return publisher;
+	}
+
+	public ListBoxModel doFillReportFormatItems(){
+		ListBoxModel items = new ListBoxModel();
+		items.add( "HTML reports", ClangScanBuildReportCollector.FORMAT_HTML );
+		items.add( "Plist files (scan-build -plist or -plist-html)", ClangScanBuildReportCollector.FORMAT_PLIST );
+		items.add( "SARIF files (scan-build -sarif)", ClangScanBuildReportCollector.FORMAT_SARIF );
+		return items;
+	}
+
+	public FormValidation doCheckClangexcludedpaths( @QueryParameter String value ){
+		try{
+			ClangScanBuildExclusionMatcher.compile( value );
+		}catch( IllegalArgumentException e ){
+			return FormValidation.error( e.getMessage() );
+		}
+		return FormValidation.ok();
 	}
 
 	@Override
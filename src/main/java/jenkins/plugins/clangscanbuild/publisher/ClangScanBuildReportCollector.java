@@ -0,0 +1,334 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.publisher;
+
+import hudson.Util;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.MasterToSlaveFileCallable;
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildBug;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Parses all the scan-build reports in the output folder on the node where the reports were
+ * generated.  Only the resulting list of bugs is sent back over the channel, which means publishing
+ * costs a single remoting round-trip instead of one per report.
+ * 
+ * The reports are either the HTML reports (one bug per report) or, when scan-build was run with
+ * -plist, -plist-html or -sarif, the plist or SARIF files (one file per translation unit holding all
+ * its bugs).
+ * 
+ * When a parallelism greater than one is configured, the report list is split across a fork-join pool
+ * of that size.  Each task parses its own slice into its own list and the lists are joined in report
+ * order, so the result is identical to the sequential path and no locking is needed.
+ * 
+ * When the keys of previously parsed HTML reports are provided, the key of every report is computed from its
+ * path, size and modification time before it is opened.  Reports whose key is already known are not read at
+ * all.  Only their key and location are returned and the bug is taken from the ClangScanBuildParseCache on
+ * the master.
+ * 
+ * Bugs in excluded source files are dropped here rather than on the master.  An HTML report is only read
+ * up to its BUGFILE marker before the exclusion is checked, so excluded reports are not parsed any further.
+ */
+public class ClangScanBuildReportCollector extends MasterToSlaveFileCallable<List<ClangScanBuildReportResult>>{
+
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger LOGGER = Logger.getLogger( ClangScanBuildReportCollector.class.getName() );
+
+	public static final String FORMAT_HTML = "html";
+	public static final String FORMAT_PLIST = "plist";
+	public static final String FORMAT_SARIF = "sarif";
+
+	public static final String REPORT_FILE_PATTERN = "**/report-*.html";
+	public static final String PLIST_FILE_PATTERN = "**/*.plist";
+	public static final String SARIF_FILE_PATTERN = "**/*.sarif";
+
+	// Slices smaller than this are parsed by a single task rather than split further
+	private static final int REPORTS_PER_TASK = 64;
+
+	private final String workspacePath;
+	private final String reportFormat;
+	private final int parallelism;
+	private final Set<String> knownKeys;
+	private final ClangScanBuildExclusionMatcher exclusionMatcher;
+	private final TaskListener listener;
+
+	public ClangScanBuildReportCollector( String workspacePath ){
+		this( workspacePath, FORMAT_HTML, 1, null );
+	}
+
+	public ClangScanBuildReportCollector( String workspacePath, String reportFormat, int parallelism, Set<String> knownKeys ){
+		this( workspacePath, reportFormat, parallelism, knownKeys, null, null );
+	}
+
+	/**
+	 * @param reportFormat FORMAT_HTML, FORMAT_PLIST or FORMAT_SARIF
+	 * @param knownKeys keys of HTML reports which do not need to be parsed, or null to parse every report
+	 * @param exclusionMatcher bugs in source files matching it are dropped, may be null
+	 * @param listener receives a line for every dropped bug, may be null
+	 */
+	public ClangScanBuildReportCollector( String workspacePath, String reportFormat, int parallelism, Set<String> knownKeys, ClangScanBuildExclusionMatcher exclusionMatcher, TaskListener listener ){
+		super();
+		this.workspacePath = workspacePath;
+		this.reportFormat = reportFormat;
+		this.parallelism = parallelism;
+		this.knownKeys = knownKeys;
+		this.exclusionMatcher = exclusionMatcher;
+		this.listener = listener;
+	}
+
+	public List<ClangScanBuildReportResult> invoke( File clangOutputFolder, VirtualChannel channel ) throws IOException, InterruptedException {
+		if( !clangOutputFolder.isDirectory() ) return new ArrayList<ClangScanBuildReportResult>();
+
+		String[] reports = locateClangBugReports( clangOutputFolder );
+		if( parallelism <= 1 || reports.length <= REPORTS_PER_TASK ){
+			return parseReports( clangOutputFolder, reports, 0, reports.length );
+		}
+
+		ForkJoinPool pool = new ForkJoinPool( parallelism );
+		try{
+			return pool.invoke( new ParseReportsTask( clangOutputFolder, reports, 0, reports.length ) );
+		}finally{
+			pool.shutdown();
+		}
+	}
+
+	private List<ClangScanBuildReportResult> parseReports( File clangOutputFolder, String[] reports, int from, int to ){
+		if( FORMAT_PLIST.equals( reportFormat ) ) return parseBugFiles( new ClangScanBuildPlistParser(), clangOutputFolder, reports, from, to );
+		if( FORMAT_SARIF.equals( reportFormat ) ) return parseBugFiles( new ClangScanBuildSarifParser(), clangOutputFolder, reports, from, to );
+
+		List<ClangScanBuildReportResult> results = new ArrayList<ClangScanBuildReportResult>( to - from );
+		ClangScanBuildReportParser parser = new ClangScanBuildReportParser();
+		for( int i = from; i < to; i++ ){
+			File report = new File( clangOutputFolder, reports[i] );
+			String reportPath = getReportPath( report );
+
+			String key = null;
+			if( knownKeys != null ){
+				key = key( report );
+				if( knownKeys.contains( key ) ){
+					results.add( new ClangScanBuildReportResult( key, reportPath, null ) );
+					continue;
+				}
+			}
+
+			Map<String,String> markers = readMarkers( parser, report );
+			if( markers == null ) continue;
+
+			results.add( new ClangScanBuildReportResult( key, reportPath, createBugInstance( markers, reportPath ) ) );
+		}
+		return results;
+	}
+
+	private List<ClangScanBuildReportResult> parseBugFiles( ClangScanBuildBugParser parser, File clangOutputFolder, String[] bugFiles, int from, int to ){
+		List<ClangScanBuildReportResult> results = new ArrayList<ClangScanBuildReportResult>();
+		for( int i = from; i < to; i++ ){
+			File bugFile = new File( clangOutputFolder, bugFiles[i] );
+
+			InputStream contents = null;
+			try{
+				contents = new FileInputStream( bugFile );
+				for( ClangScanBuildBug bug : parser.parse( contents ) ){
+					bug.setSourceFile( relativeToWorkspace( bug.getSourceFile() ) );
+					if( isExcluded( bug.getSourceFile() ) ) continue;
+					results.add( new ClangScanBuildReportResult( null, bug.getReportFile(), bug ) );
+				}
+			}catch( IOException e ){
+				LOGGER.log( Level.WARNING, "Unable to read clang output: " + bugFile, e );
+			}finally{
+				IOUtils.closeQuietly( contents );
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * The key is looked up without opening the report: scan-build writes a report once, so a report with the
+	 * same path, size and modification time is the report parsed before.  The workspace path is part of the
+	 * key because the source file of the parsed bug is made relative to the workspace.
+	 */
+	private String key( File report ){
+		try{
+			MessageDigest digest = MessageDigest.getInstance( "SHA-1" );
+			String key = workspacePath + '\n' + report.getAbsolutePath() + '\n' + report.length() + '\n' + report.lastModified();
+			return Util.toHexString( digest.digest( key.getBytes( "UTF-8" ) ) );
+		}catch( NoSuchAlgorithmException e ){
+			throw new IllegalStateException( e );
+		}catch( IOException e ){
+			throw new IllegalStateException( e );
+		}
+	}
+
+	/**
+	 * This locates all the generated HTML bug reports from scan-build and returns their paths relative
+	 * to the output folder.
+	 */
+	protected String[] locateClangBugReports( File clangOutputFolder ){
+		String pattern = REPORT_FILE_PATTERN;
+		if( FORMAT_PLIST.equals( reportFormat ) ) pattern = PLIST_FILE_PATTERN;
+		if( FORMAT_SARIF.equals( reportFormat ) ) pattern = SARIF_FILE_PATTERN;
+		return Util.createFileSet( clangOutputFolder, pattern ).getDirectoryScanner().getIncludedFiles();
+	}
+
+	/**
+	 * This reads the HTML comment markers that appear at the top of every HTML bug report from scan-build
+	 * using the ClangScanBuildReportParser.  If the source file named by the BUGFILE marker is excluded,
+	 * reading stops there and null is returned.  If the report cannot be read, no markers are returned.
+	 */
+	private Map<String,String> readMarkers( ClangScanBuildReportParser parser, File report ){
+		InputStream contents = null;
+		try {
+			// this code reads the bug markers from the head of the HTML report, the annotated source is never read
+			contents = new FileInputStream( report );
+			return parser.readMarkers( contents, new ExclusionFilter() );
+		}catch( IOException e ){
+			LOGGER.log( Level.ALL, "Unable to read file or locate clang markers in content: " + report );
+			return new HashMap<String,String>();
+		}finally{
+			IOUtils.closeQuietly( contents );
+		}
+	}
+
+	/**
+	 * This method creates a bug instance from the markers of a scan-build HMTL report.  If scan-build ever adds
+	 * an XML option, this functionality can be replaced with an XML parsing routine.
+	 */
+	private ClangScanBuildBug createBugInstance( Map<String,String> markers, String reportPath ){
+		ClangScanBuildBug instance = new ClangScanBuildBug();
+		instance.setReportFile( reportPath );
+		instance.setBugDescription( markers.get( ClangScanBuildReportParser.BUGDESC ) );
+		instance.setBugType( markers.get( ClangScanBuildReportParser.BUGTYPE ) );
+		instance.setBugCategory( markers.get( ClangScanBuildReportParser.BUGCATEGORY ) );
+		instance.setFunctionName( markers.get( ClangScanBuildReportParser.FUNCTIONNAME ) );
+		instance.setBugLine( ClangScanBuildBug.parseNumber( markers.get( ClangScanBuildReportParser.BUGLINE ) ) );
+		instance.setBugColumn( ClangScanBuildBug.parseNumber( markers.get( ClangScanBuildReportParser.BUGCOLUMN ) ) );
+		instance.setBugPathLength( ClangScanBuildBug.parseNumber( markers.get( ClangScanBuildReportParser.BUGPATHLENGTH ) ) );
+		instance.setIssueHash( ClangScanBuildBug.parseIssueHash( markers.get( ClangScanBuildReportParser.ISSUEHASHCONTENTOFLINEINCONTEXT ) ) );
+		instance.setSourceFile( relativeToWorkspace( markers.get( ClangScanBuildReportParser.BUGFILE ) ) );
+		return instance;
+	}
+
+	/**
+	 * Returns true, and logs it, if bugs in the source file (relative to the workspace) are excluded.
+	 */
+	private boolean isExcluded( String sourceFile ){
+		if( exclusionMatcher == null ) return false;
+
+		String exclusion = exclusionMatcher.match( sourceFile );
+		if( exclusion == null ) return false;
+
+		if( listener != null ){
+			listener.getLogger().println( "Skipping file: " + sourceFile + " because it matches exclusion pattern: " + exclusion );
+		}
+		return true;
+	}
+
+	/**
+	 * This attempts to shorten the file path by removing the workspace path and
+	 * leaving only the path relative to the workspace.
+	 */
+	private String relativeToWorkspace( String sourceFile ){
+		int position = ( sourceFile == null ) ? -1 : sourceFile.lastIndexOf( workspacePath );
+		if( position >= 0 ){
+			return sourceFile.substring( position + workspacePath.length() );
+		}
+		return sourceFile;
+	}
+
+	/**
+	 * The path used to browse the report from the build page.
+	 */
+	private String getReportPath( File report ){
+		String basePath = "StaticAnalyzer/";
+		String reportPath = report.getPath();
+
+		int baseIdx = reportPath.indexOf(basePath);
+		if(baseIdx > -1) {
+			return reportPath.substring(baseIdx, reportPath.length());
+		}
+		return report.getName();
+	}
+
+	private class ExclusionFilter implements ClangScanBuildReportParser.MarkerFilter {
+
+		public boolean accept( String key, String value ){
+			return !ClangScanBuildReportParser.BUGFILE.equals( key ) || !isExcluded( relativeToWorkspace( value ) );
+		}
+
+	}
+
+	private class ParseReportsTask extends RecursiveTask<List<ClangScanBuildReportResult>>{
+
+		private static final long serialVersionUID = 1L;
+
+		private final File clangOutputFolder;
+		private final String[] reports;
+		private final int from;
+		private final int to;
+
+		public ParseReportsTask( File clangOutputFolder, String[] reports, int from, int to ){
+			super();
+			this.clangOutputFolder = clangOutputFolder;
+			this.reports = reports;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected List<ClangScanBuildReportResult> compute(){
+			if( to - from <= REPORTS_PER_TASK ){
+				return parseReports( clangOutputFolder, reports, from, to );
+			}
+
+			int middle = ( from + to ) >>> 1;
+			ParseReportsTask head = new ParseReportsTask( clangOutputFolder, reports, from, middle );
+			ParseReportsTask tail = new ParseReportsTask( clangOutputFolder, reports, middle, to );
+			tail.fork();
+
+			// joining head before tail keeps the results in report order
+			List<ClangScanBuildReportResult> results = head.compute();
+			results.addAll( tail.join() );
+			return results;
+		}
+
+	}
+
+}
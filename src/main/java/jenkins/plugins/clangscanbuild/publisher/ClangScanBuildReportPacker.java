@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.publisher;
+
+import hudson.FilePath;
+import hudson.remoting.Pipe;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import jenkins.MasterToSlaveFileCallable;
+
+import org.apache.commons.io.output.CountingOutputStream;
+
+/**
+ * Packs the reports folder into a single tar stream, gzipped at the configured level, and writes it to the
+ * pipe back to the master.  Returns the size of the uncompressed tar so the compression ratio can be logged.
+ * FilePath.copyRecursiveTo sends the same stream at the default level, this only exists to choose the level
+ * and to measure the transfer.
+ */
+public class ClangScanBuildReportPacker extends MasterToSlaveFileCallable<Long>{
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Pipe pipe;
+	private final int compressionLevel;
+
+	/**
+	 * @param compressionLevel a deflate level from 1 (fastest) to 9 (smallest)
+	 */
+	public ClangScanBuildReportPacker( Pipe pipe, int compressionLevel ){
+		super();
+		this.pipe = pipe;
+		this.compressionLevel = compressionLevel;
+	}
+
+	public Long invoke( File reportsFolder, VirtualChannel channel ) throws IOException, InterruptedException {
+		OutputStream out = pipe.getOut();
+		try{
+			GZIPOutputStream compressed = new LeveledGZIPOutputStream( out, compressionLevel );
+			CountingOutputStream uncompressed = new CountingOutputStream( compressed );
+			new FilePath( reportsFolder ).tar( uncompressed, "**/*" );
+			compressed.finish();
+			return uncompressed.getByteCount();
+		}finally{
+			out.close();
+		}
+	}
+
+	private static class LeveledGZIPOutputStream extends GZIPOutputStream{
+
+		public LeveledGZIPOutputStream( OutputStream out, int level ) throws IOException {
+			super( out, BUFFER_SIZE );
+			def.setLevel( level );
+		}
+
+	}
+
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.publisher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Every HTML report generated by scan-build starts with a block of HTML comments holding the
+ * bug meta-data ( <!-- BUGTYPE Dead store --> ).  The block is closed by a BUGMETAEND marker
+ * and is followed by the annotated source of the file, which can be very large.
+ * 
+ * This parser pulls the markers out of the report in a single forward pass over the stream and
+ * stops reading as soon as the marker block ends, so the inline source is never read.  A MarkerFilter
+ * can stop it even earlier, for example as soon as the BUGFILE marker shows the report is excluded.
+ */
+public class ClangScanBuildReportParser {
+
+	public static final String BUGDESC = "BUGDESC";
+	public static final String BUGTYPE = "BUGTYPE";
+	public static final String BUGCATEGORY = "BUGCATEGORY";
+	public static final String BUGFILE = "BUGFILE";
+	public static final String FUNCTIONNAME = "FUNCTIONNAME";
+	public static final String ISSUEHASHCONTENTOFLINEINCONTEXT = "ISSUEHASHCONTENTOFLINEINCONTEXT";
+	public static final String BUGLINE = "BUGLINE";
+	public static final String BUGCOLUMN = "BUGCOLUMN";
+	public static final String BUGPATHLENGTH = "BUGPATHLENGTH";
+	public static final String BUGMETAEND = "BUGMETAEND";
+
+	private static final char[] COMMENT_START = "<!--".toCharArray();
+
+	// Markers are short, this only protects against buffering huge comments that are not markers
+	private static final int MAX_MARKER_LENGTH = 8 * 1024;
+
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	/**
+	 * Reads the markers from the report stream.  The stream is read up to the end of the marker
+	 * block (or to the end of the stream if the report has no BUGMETAEND marker) and is not closed.
+	 * If a marker appears more than once, the first value is kept.
+	 */
+	public Map<String,String> readMarkers( InputStream report ) throws IOException {
+		return readMarkers( new InputStreamReader( report, "UTF-8" ) );
+	}
+
+	public Map<String,String> readMarkers( Reader report ) throws IOException {
+		return readMarkers( report, null );
+	}
+
+	/**
+	 * Same as readMarkers( InputStream ) but every marker is offered to the filter as soon as it
+	 * has been read.  If the filter rejects a marker, reading stops and null is returned.
+	 */
+	public Map<String,String> readMarkers( InputStream report, MarkerFilter filter ) throws IOException {
+		return readMarkers( new InputStreamReader( report, "UTF-8" ), filter );
+	}
+
+	public Map<String,String> readMarkers( Reader report, MarkerFilter filter ) throws IOException {
+		Map<String,String> markers = new HashMap<String,String>();
+
+		char[] buffer = new char[ BUFFER_SIZE ];
+		StringBuilder comment = new StringBuilder();
+		boolean inComment = false;
+		int matchedStart = 0;
+		int dashes = 0;
+
+		int read;
+		while( ( read = report.read( buffer ) ) != -1 ){
+			for( int i = 0; i < read; i++ ){
+				char c = buffer[i];
+
+				if( !inComment ){
+					if( c == COMMENT_START[ matchedStart ] ){
+						matchedStart++;
+						if( matchedStart == COMMENT_START.length ){
+							inComment = true;
+							matchedStart = 0;
+							dashes = 0;
+							comment.setLength( 0 );
+						}
+					}else{
+						matchedStart = ( c == COMMENT_START[0] ) ? 1 : 0;
+					}
+					continue;
+				}
+
+				if( c == '>' && dashes >= 2 ){
+					inComment = false;
+					if( comment.length() >= MAX_MARKER_LENGTH ) continue;
+					// drop the '--' that was buffered before the closing '>'
+					comment.setLength( comment.length() - 2 );
+					String key = addMarker( comment, markers );
+					if( BUGMETAEND.equals( key ) ) return markers;
+					if( key != null && filter != null && !filter.accept( key, markers.get( key ) ) ) return null;
+					continue;
+				}
+
+				dashes = ( c == '-' ) ? dashes + 1 : 0;
+				if( comment.length() < MAX_MARKER_LENGTH ) comment.append( c );
+			}
+		}
+
+		return markers;
+	}
+
+	/**
+	 * Records the comment if it looks like a marker.  Returns the key of a newly recorded marker,
+	 * BUGMETAEND when the end of the marker block has been reached and null otherwise.
+	 */
+	private String addMarker( CharSequence comment, Map<String,String> markers ){
+		int length = comment.length();
+		int start = 0;
+		while( start < length && Character.isWhitespace( comment.charAt( start ) ) ) start++;
+		if( start == 0 ) return null;
+
+		// markers are always written as <!-- KEY value -->
+		int keyEnd = start;
+		while( keyEnd < length && isMarkerKeyChar( comment.charAt( keyEnd ) ) ) keyEnd++;
+		if( keyEnd == start || keyEnd == length ) return null;
+		if( !Character.isWhitespace( comment.charAt( keyEnd ) ) ) return null;
+
+		String key = comment.subSequence( start, keyEnd ).toString();
+		if( BUGMETAEND.equals( key ) ) return key;
+
+		if( markers.containsKey( key ) ) return null;
+		markers.put( key, comment.subSequence( keyEnd, length ).toString().trim() );
+		return key;
+	}
+
+	private boolean isMarkerKeyChar( char c ){
+		return ( c >= 'A' && c <= 'Z' ) || ( c >= '0' && c <= '9' ) || c == '_';
+	}
+
+	/**
+	 * Decides while a report is being read whether the rest of it is needed.
+	 */
+	public interface MarkerFilter {
+
+		/**
+		 * Returns false to stop reading the report.
+		 */
+		boolean accept( String key, String value );
+
+	}
+
+}
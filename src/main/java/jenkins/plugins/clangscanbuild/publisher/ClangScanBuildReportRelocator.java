@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.publisher;
+
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Moves the contents of the dated folder scan-build writes its reports into up to the parent reports folder
+ * and then deletes the dated folder.  Entries are renamed, which is a metadata-only operation on the node's
+ * file system.  Only when a rename is not possible because the reports folder is on another device is the
+ * entry copied and deleted instead.
+ * 
+ * Existing entries in the reports folder are replaced, and existing folders are merged, the same way copying
+ * the dated folder over the reports folder would.  Returns the number of entries that had to be copied.
+ */
+public class ClangScanBuildReportRelocator extends MasterToSlaveFileCallable<Integer>{
+
+	private static final long serialVersionUID = 1L;
+
+	public Integer invoke( File clangDataFolder, VirtualChannel channel ) throws IOException, InterruptedException {
+		int copied = relocateContents( clangDataFolder.toPath(), clangDataFolder.getParentFile().toPath() );
+		Util.deleteRecursive( clangDataFolder );
+		return copied;
+	}
+
+	private int relocateContents( Path sourceFolder, Path targetFolder ) throws IOException {
+		int copied = 0;
+		DirectoryStream<Path> entries = Files.newDirectoryStream( sourceFolder );
+		try{
+			for( Path entry : entries ){
+				Path target = targetFolder.resolve( entry.getFileName() );
+
+				if( Files.isDirectory( entry, LinkOption.NOFOLLOW_LINKS ) && Files.isDirectory( target, LinkOption.NOFOLLOW_LINKS ) ){
+					copied += relocateContents( entry, target );
+					continue;
+				}
+
+				if( Files.exists( target, LinkOption.NOFOLLOW_LINKS ) ){
+					Util.deleteRecursive( target.toFile() );
+				}
+
+				try{
+					Files.move( entry, target, StandardCopyOption.ATOMIC_MOVE );
+				}catch( AtomicMoveNotSupportedException e ){
+					// the reports folder is on another device, the source is removed with the dated folder
+					copyTree( entry, target );
+					copied++;
+				}
+			}
+		}finally{
+			entries.close();
+		}
+		return copied;
+	}
+
+	private void copyTree( final Path source, final Path target ) throws IOException {
+		Files.walkFileTree( source, new SimpleFileVisitor<Path>(){
+
+			@Override
+			public FileVisitResult preVisitDirectory( Path directory, BasicFileAttributes attributes ) throws IOException {
+				Files.createDirectories( target.resolve( source.relativize( directory ).toString() ) );
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile( Path file, BasicFileAttributes attributes ) throws IOException {
+				Files.copy( file, target.resolve( source.relativize( file ).toString() ), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES );
+				return FileVisitResult.CONTINUE;
+			}
+
+		});
+	}
+
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.publisher;
+
+import java.io.Serializable;
+
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildBug;
+
+/**
+ * What the ClangScanBuildReportCollector sends back to the master for each report.  The bug is
+ * null when the report key was already known to the parse cache and the report was not parsed.
+ */
+public class ClangScanBuildReportResult implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private String key;
+	private String reportFile;
+	private ClangScanBuildBug bug;
+
+	public ClangScanBuildReportResult( String key, String reportFile, ClangScanBuildBug bug ){
+		super();
+		this.key = key;
+		this.reportFile = reportFile;
+		this.bug = bug;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public String getReportFile() {
+		return reportFile;
+	}
+
+	public ClangScanBuildBug getBug() {
+		return bug;
+	}
+
+}
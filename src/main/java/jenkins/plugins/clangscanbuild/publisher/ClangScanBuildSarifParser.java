@@ -0,0 +1,308 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.publisher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildBug;
+
+/**
+ * Reads the SARIF files written by scan-build when it is run with -sarif.  The file is streamed with
+ * the ClangScanBuildJsonReader, so only the result being read is held in memory.
+ * 
+ * SARIF does not carry the bug category and type shown in the HTML reports.  The checker name (the
+ * rule id) is used as the bug type and its package as the category, for instance 'deadcode' and
+ * 'deadcode.DeadStores'.
+ */
+public class ClangScanBuildSarifParser implements ClangScanBuildBugParser {
+
+	public List<ClangScanBuildBug> parse( InputStream sarif ) throws IOException {
+		List<ClangScanBuildBug> bugs = new ArrayList<ClangScanBuildBug>();
+		ClangScanBuildJsonReader reader = new ClangScanBuildJsonReader( new InputStreamReader( sarif, "UTF-8" ) );
+
+		reader.beginObject();
+		while( reader.hasNext() ){
+			if( "runs".equals( reader.nextName() ) ){
+				reader.beginArray();
+				while( reader.hasNext() ){
+					readRun( reader, bugs );
+				}
+				reader.endArray();
+			}else{
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		return bugs;
+	}
+
+	/**
+	 * Results may refer to their file by index into the artifacts of the run, these are resolved once
+	 * the whole run has been read.
+	 */
+	private void readRun( ClangScanBuildJsonReader reader, List<ClangScanBuildBug> bugs ) throws IOException {
+		List<String> artifacts = new ArrayList<String>();
+		List<ClangScanBuildBug> runBugs = new ArrayList<ClangScanBuildBug>();
+		List<Integer> artifactIndexes = new ArrayList<Integer>();
+
+		reader.beginObject();
+		while( reader.hasNext() ){
+			String name = reader.nextName();
+			if( "artifacts".equals( name ) ){
+				reader.beginArray();
+				while( reader.hasNext() ){
+					artifacts.add( readArtifactUri( reader ) );
+				}
+				reader.endArray();
+			}else if( "results".equals( name ) ){
+				reader.beginArray();
+				while( reader.hasNext() ){
+					runBugs.add( readResult( reader, artifactIndexes ) );
+				}
+				reader.endArray();
+			}else{
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		for( int i = 0; i < runBugs.size(); i++ ){
+			ClangScanBuildBug bug = runBugs.get( i );
+			int artifactIndex = artifactIndexes.get( i );
+			if( bug.getSourceFile() == null && artifactIndex >= 0 && artifactIndex < artifacts.size() ){
+				bug.setSourceFile( artifacts.get( artifactIndex ) );
+			}
+		}
+		bugs.addAll( runBugs );
+	}
+
+	private String readArtifactUri( ClangScanBuildJsonReader reader ) throws IOException {
+		String uri = null;
+		reader.beginObject();
+		while( reader.hasNext() ){
+			if( "location".equals( reader.nextName() ) ){
+				uri = readUri( reader );
+			}else{
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return uri;
+	}
+
+	private ClangScanBuildBug readResult( ClangScanBuildJsonReader reader, List<Integer> artifactIndexes ) throws IOException {
+		ClangScanBuildBug bug = new ClangScanBuildBug();
+		int artifactIndex = -1;
+
+		reader.beginObject();
+		while( reader.hasNext() ){
+			String name = reader.nextName();
+			if( "ruleId".equals( name ) ){
+				String ruleId = reader.nextString();
+				bug.setCheckerName( ruleId );
+				bug.setBugType( ruleId );
+				String category = ClangScanBuildBug.categoryOfChecker( ruleId );
+				if( category == null && ruleId != null && ruleId.lastIndexOf( '.' ) > 0 ){
+					category = ruleId.substring( 0, ruleId.lastIndexOf( '.' ) );
+				}
+				bug.setBugCategory( category );
+			}else if( "message".equals( name ) ){
+				bug.setBugDescription( readText( reader ) );
+			}else if( "locations".equals( name ) ){
+				reader.beginArray();
+				if( reader.hasNext() ) artifactIndex = readLocation( reader, bug );
+				while( reader.hasNext() ) reader.skipValue();
+				reader.endArray();
+			}else if( "codeFlows".equals( name ) ){
+				bug.setBugPathLength( countThreadFlowLocations( reader ) );
+			}else if( "partialFingerprints".equals( name ) ){
+				reader.beginObject();
+				while( reader.hasNext() ){
+					String fingerprint = reader.nextName();
+					if( fingerprint.contains( "issueHash" ) ){
+						bug.setIssueHash( ClangScanBuildBug.parseIssueHash( reader.nextString() ) );
+					}else{
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+			}else{
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		artifactIndexes.add( artifactIndex );
+		return bug;
+	}
+
+	/**
+	 * Reads a location: { "physicalLocation": { "artifactLocation": {...}, "region": { "startLine", "startColumn" } } }
+	 * and returns the artifact index of the location, or -1 if it has none.
+	 */
+	private int readLocation( ClangScanBuildJsonReader reader, ClangScanBuildBug bug ) throws IOException {
+		int artifactIndex = -1;
+		reader.beginObject();
+		while( reader.hasNext() ){
+			if( !"physicalLocation".equals( reader.nextName() ) ){
+				reader.skipValue();
+				continue;
+			}
+
+			reader.beginObject();
+			while( reader.hasNext() ){
+				String name = reader.nextName();
+				if( "artifactLocation".equals( name ) ){
+					reader.beginObject();
+					while( reader.hasNext() ){
+						String member = reader.nextName();
+						if( "uri".equals( member ) ){
+							bug.setSourceFile( toPath( reader.nextString() ) );
+						}else if( "index".equals( member ) ){
+							artifactIndex = parseIndex( reader.nextString() );
+						}else{
+							reader.skipValue();
+						}
+					}
+					reader.endObject();
+				}else if( "region".equals( name ) ){
+					reader.beginObject();
+					while( reader.hasNext() ){
+						String member = reader.nextName();
+						if( "startLine".equals( member ) ){
+							bug.setBugLine( ClangScanBuildBug.parseNumber( reader.nextString() ) );
+						}else if( "startColumn".equals( member ) ){
+							bug.setBugColumn( ClangScanBuildBug.parseNumber( reader.nextString() ) );
+						}else{
+							reader.skipValue();
+						}
+					}
+					reader.endObject();
+				}else{
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		}
+		reader.endObject();
+		return artifactIndex;
+	}
+
+	/**
+	 * Counts the steps of the first thread flow, these are the numbered steps shown in the HTML report.
+	 */
+	private int countThreadFlowLocations( ClangScanBuildJsonReader reader ) throws IOException {
+		int locations = 0;
+		reader.beginArray();
+		while( reader.hasNext() ){
+			reader.beginObject();
+			while( reader.hasNext() ){
+				if( !"threadFlows".equals( reader.nextName() ) || locations > 0 ){
+					reader.skipValue();
+					continue;
+				}
+
+				reader.beginArray();
+				while( reader.hasNext() ){
+					reader.beginObject();
+					while( reader.hasNext() ){
+						if( "locations".equals( reader.nextName() ) && locations == 0 ){
+							reader.beginArray();
+							while( reader.hasNext() ){
+								reader.skipValue();
+								locations++;
+							}
+							reader.endArray();
+						}else{
+							reader.skipValue();
+						}
+					}
+					reader.endObject();
+				}
+				reader.endArray();
+			}
+			reader.endObject();
+		}
+		reader.endArray();
+		return locations;
+	}
+
+	/**
+	 * Reads { "uri": "file:///..." } and returns it as a path, or null if there is no uri.
+	 */
+	private String readUri( ClangScanBuildJsonReader reader ) throws IOException {
+		String uri = null;
+		reader.beginObject();
+		while( reader.hasNext() ){
+			if( "uri".equals( reader.nextName() ) ){
+				uri = toPath( reader.nextString() );
+			}else{
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return uri;
+	}
+
+	/**
+	 * Reads a SARIF message object { "text": "..." }.
+	 */
+	private String readText( ClangScanBuildJsonReader reader ) throws IOException {
+		String text = null;
+		reader.beginObject();
+		while( reader.hasNext() ){
+			if( "text".equals( reader.nextName() ) ){
+				text = reader.nextString();
+			}else{
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return text;
+	}
+
+	private String toPath( String uri ){
+		if( uri == null || !uri.startsWith( "file:" ) ) return uri;
+		try{
+			String path = new URI( uri ).getPath();
+			return ( path == null ) ? uri : path;
+		}catch( URISyntaxException e ){
+			return uri.startsWith( "file://" ) ? uri.substring( "file://".length() ) : uri.substring( "file:".length() );
+		}
+	}
+
+	private int parseIndex( String value ){
+		try{
+			return Integer.parseInt( value );
+		}catch( NumberFormatException e ){
+			return -1;
+		}
+	}
+
+}
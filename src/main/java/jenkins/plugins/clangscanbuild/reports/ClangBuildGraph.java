@@ -21,7 +21,6 @@
  */
 package jenkins.plugins.clangscanbuild.reports;
 
-import hudson.util.ChartUtil.NumberOnlyBuildLabel;
 import hudson.util.ColorPalette;
 import hudson.util.DataSetBuilder;
 import hudson.util.Graph;
@@ -29,14 +28,22 @@ import hudson.util.ShiftedCategoryAxis;
 
 import java.awt.BasicStroke;
 import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.List;
 
+import javax.imageio.ImageIO;
+
 import jenkins.plugins.clangscanbuild.actions.ClangScanBuildAction;
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildTrendIndex;
 
 import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartRenderingInfo;
+import org.jfree.chart.ChartUtilities;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.axis.CategoryAxis;
 import org.jfree.chart.axis.CategoryLabelPositions;
@@ -55,29 +62,58 @@ import org.jfree.ui.RectangleInsets;
  * @author Joshua Kennedy
  */
 public class ClangBuildGraph extends Graph{
+
+	public static final int DEFAULT_WIDTH = 350;
+	public static final int DEFAULT_HEIGHT = 150;
+
+	// the series that can be drawn: the bug count, the bug count of each category, or the new and fixed bugs
+	public static final String SERIES_TOTAL = "total";
+	public static final String SERIES_CATEGORY = "category";
+	public static final String SERIES_NEW_AND_FIXED = "newfixed";
 	
 	private List<GraphPoint> points;
+	private String projectUrl;
+	private String series;
 	
-	public ClangBuildGraph( List<GraphPoint> points ){
-		super( Calendar.getInstance(), 350, 150 );
+	public ClangBuildGraph( List<GraphPoint> points, String projectUrl ){
+		this( points, projectUrl, SERIES_TOTAL );
+	}
+
+	/**
+	 * @param projectUrl the URL of the project relative to the context path, the points link to its builds
+	 * @param series one of the SERIES constants, anything else draws the bug count
+	 */
+	public ClangBuildGraph( List<GraphPoint> points, String projectUrl, String series ){
+		super( Calendar.getInstance(), DEFAULT_WIDTH, DEFAULT_HEIGHT );
 		this.points = points;
+		this.projectUrl = projectUrl;
+		this.series = series;
+	}
+
+	/**
+	 * Renders the image and the clickable map together, so both can be served from one rendering.
+	 */
+	public RenderedGraph render( int width, int height ) throws IOException {
+		ChartRenderingInfo info = new ChartRenderingInfo();
+		BufferedImage image = createGraph().createBufferedImage( width, height, info );
+
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		ImageIO.write( image, "PNG", png );
+		return new RenderedGraph( png.toByteArray(), ChartUtilities.getImageMap( "map", info ) );
 	}
 
 	@Override
 	protected JFreeChart createGraph(){
 		
-		DataSetBuilder<String, NumberOnlyBuildLabel> dataSetBuilder = new DataSetBuilder<String, NumberOnlyBuildLabel>();
-		for( GraphPoint point : points ){
-			dataSetBuilder.add( point.getBugCount(), "bugcount", new NumberOnlyBuildLabel( point.getRun() ) );
-		}
+		CategoryDataset dataset = buildDataset();
 		
         final JFreeChart chart = ChartFactory.createLineChart(
             null, // chart title
             null, // unused
             "Bugs", // range axis label
-            dataSetBuilder.build(), // data
+            dataset, // data
             PlotOrientation.VERTICAL, // orientation
-            false, // include legend
+            dataset.getRowCount() > 1, // include legend
             true, // tooltips
             true // urls
         );
@@ -101,10 +137,10 @@ public class ClangBuildGraph extends Graph{
         rangeAxis.setStandardTickUnits( NumberAxis.createIntegerTickUnits() );
         
         // Using a custom render here so i can control how URLs and tooltips are added to the imagemap
-        URLAndTooltipBuilder builder = new URLAndTooltipBuilder( points );
+        URLAndTooltipBuilder builder = new URLAndTooltipBuilder( points, projectUrl );
         URLAndTooltipRenderer urlRenderer = new URLAndTooltipRenderer( builder );
         urlRenderer.setBaseStroke( new BasicStroke( 4.0f ) );
-        urlRenderer.setSeriesShapesVisible( 0,  true );
+        urlRenderer.setBaseShapesVisible( true );
         ColorPalette.apply( urlRenderer );
         plot.setRenderer( urlRenderer );
 
@@ -112,6 +148,51 @@ public class ClangBuildGraph extends Graph{
         plot.setInsets( new RectangleInsets( 5.0, 0, 0, 5.0 ) );
         return chart;
 	}
+
+	/**
+	 * The series are drawn from the counts recorded in the points, no bug summary is loaded.  Categories without
+	 * bugs in any of the builds are left out.
+	 */
+	private CategoryDataset buildDataset(){
+		DataSetBuilder<String, BuildNumberLabel> dataSetBuilder = new DataSetBuilder<String, BuildNumberLabel>();
+
+		if( SERIES_NEW_AND_FIXED.equals( series ) ){
+			for( GraphPoint point : points ){
+				BuildNumberLabel label = new BuildNumberLabel( point.getBuildNumber() );
+				dataSetBuilder.add( point.getNewBugCount(), "New", label );
+				dataSetBuilder.add( point.getFixedBugCount(), "Fixed", label );
+			}
+			return dataSetBuilder.build();
+		}
+
+		if( SERIES_CATEGORY.equals( series ) ){
+			boolean[] categoriesWithBugs = new boolean[ ClangScanBuildTrendIndex.CATEGORIES.length ];
+			boolean anyBugs = false;
+			for( GraphPoint point : points ){
+				int[] categoryCounts = point.getCategoryCounts();
+				for( int i = 0; i < categoryCounts.length && i < categoriesWithBugs.length; i++ ){
+					if( categoryCounts[i] > 0 ) categoriesWithBugs[i] = anyBugs = true;
+				}
+			}
+
+			if( anyBugs ){
+				for( GraphPoint point : points ){
+					BuildNumberLabel label = new BuildNumberLabel( point.getBuildNumber() );
+					int[] categoryCounts = point.getCategoryCounts();
+					for( int i = 0; i < categoriesWithBugs.length; i++ ){
+						if( !categoriesWithBugs[i] ) continue;
+						dataSetBuilder.add( i < categoryCounts.length ? categoryCounts[i] : 0, ClangScanBuildTrendIndex.CATEGORIES[i], label );
+					}
+				}
+				return dataSetBuilder.build();
+			}
+		}
+
+		for( GraphPoint point : points ){
+			dataSetBuilder.add( point.getBugCount(), "bugcount", new BuildNumberLabel( point.getBuildNumber() ) );
+		}
+		return dataSetBuilder.build();
+	}
 	
 	private static class URLAndTooltipRenderer extends LineAndShapeRenderer{
 		
@@ -141,26 +222,63 @@ public class ClangBuildGraph extends Graph{
         // This was causing the points on the map not to match the URLs and tooltips.  By reversing
         // the list of points for the renderer, the data stays in sync.
         private List<GraphPoint> reversedPoints;
+        private String projectUrl;
         
-        public URLAndTooltipBuilder( List<GraphPoint> points ){
+        public URLAndTooltipBuilder( List<GraphPoint> points, String projectUrl ){
         	reversedPoints = new ArrayList<GraphPoint>( points );
             Collections.reverse( reversedPoints );
+            this.projectUrl = projectUrl;
         }
         
 		@Override
 		public String generateURL( CategoryDataset dataset, int series, int category ){
 			GraphPoint point = reversedPoints.get( category );
 			if( point == null ) return "";
-			return "/" + point.getRun().getUrl() + "/" + ClangScanBuildAction.BUILD_ACTION_URL_NAME;
+			return "/" + projectUrl + point.getBuildNumber() + "/" + ClangScanBuildAction.BUILD_ACTION_URL_NAME;
 		}
 
 		@Override
 		public String generateToolTip( CategoryDataset dataset, int row, int column ){
 			GraphPoint point = reversedPoints.get( column );
 			if( point == null ) return "";
-			return "Build #" + point.getRun().number + " - " + point.getBugCount() + " bugs";
+			if( dataset.getRowCount() == 1 ) return "Build #" + point.getBuildNumber() + " - " + point.getBugCount() + " bugs";
+			return "Build #" + point.getBuildNumber() + " - " + dataset.getRowKey( row ) + ": " + dataset.getValue( row, column );
 		}
 		
 	}
 
+	/**
+	 * Labels the builds on the domain axis by number, like ChartUtil.NumberOnlyBuildLabel but without needing
+	 * the build itself.
+	 */
+	private static class BuildNumberLabel implements Comparable<BuildNumberLabel>{
+
+		private final int buildNumber;
+
+		public BuildNumberLabel( int buildNumber ){
+			this.buildNumber = buildNumber;
+		}
+
+		@Override
+		public int compareTo( BuildNumberLabel that ){
+			return buildNumber < that.buildNumber ? -1 : ( buildNumber == that.buildNumber ? 0 : 1 );
+		}
+
+		@Override
+		public boolean equals( Object obj ){
+			return obj instanceof BuildNumberLabel && ( (BuildNumberLabel) obj ).buildNumber == buildNumber;
+		}
+
+		@Override
+		public int hashCode(){
+			return buildNumber;
+		}
+
+		@Override
+		public String toString(){
+			return "#" + buildNumber;
+		}
+
+	}
+
 }
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.reports;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Controller-wide cache of rendered trend graphs, keyed by project, series and size.  A rendering is reused while the
+ * project's last completed build and its trend points are the ones it was drawn from, so a wallboard refreshing
+ * an unchanged trend does not render it again.
+ */
+public class ClangBuildGraphCache {
+
+	private static final int MAX_ENTRIES = 200;
+
+	private static final ClangBuildGraphCache INSTANCE = new ClangBuildGraphCache();
+
+	@SuppressWarnings("serial")
+	private final Map<String,Entry> graphs = new LinkedHashMap<String,Entry>( 16, 0.75f, true ){
+		@Override
+		protected boolean removeEldestEntry( Map.Entry<String,Entry> eldest ){
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	private long hits;
+	private long misses;
+
+	public static ClangBuildGraphCache getInstance(){
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the rendering of the points, rendering them only when the cached rendering is out of date.
+	 * 
+	 * @param points the trend points of the project, the cached rendering is reused for the same list only
+	 * @param series the series to draw, see ClangBuildGraph
+	 */
+	public RenderedGraph get( AbstractProject<?,?> project, List<GraphPoint> points, String series, int width, int height ) throws IOException {
+		AbstractBuild<?,?> lastCompletedBuild = project.getLastCompletedBuild();
+		int lastCompletedBuildNumber = lastCompletedBuild == null ? 0 : lastCompletedBuild.getNumber();
+
+		String key = project.getFullName() + "@" + series + ":" + width + "x" + height;
+		synchronized( this ){
+			Entry entry = graphs.get( key );
+			if( entry != null && entry.points == points && entry.lastCompletedBuildNumber == lastCompletedBuildNumber ){
+				hits++;
+				return entry.graph;
+			}
+			misses++;
+		}
+
+		// rendering takes a while, concurrent requests for a changed trend may both render it
+		RenderedGraph graph = new ClangBuildGraph( points, project.getUrl(), series ).render( width, height );
+		synchronized( this ){
+			graphs.put( key, new Entry( points, lastCompletedBuildNumber, graph ) );
+		}
+		return graph;
+	}
+
+	/**
+	 * Drops the renderings of the project with the full name, which may no longer exist.
+	 */
+	public synchronized void invalidate( String fullName ){
+		String prefix = fullName + "@";
+		for( Iterator<String> keys = graphs.keySet().iterator(); keys.hasNext(); ){
+			if( keys.next().startsWith( prefix ) ) keys.remove();
+		}
+	}
+
+	public synchronized int getSize(){
+		return graphs.size();
+	}
+
+	public synchronized long getHits(){
+		return hits;
+	}
+
+	public synchronized long getMisses(){
+		return misses;
+	}
+
+	private static class Entry {
+
+		private final List<GraphPoint> points;
+		private final int lastCompletedBuildNumber;
+		private final RenderedGraph graph;
+
+		public Entry( List<GraphPoint> points, int lastCompletedBuildNumber, RenderedGraph graph ){
+			this.points = points;
+			this.lastCompletedBuildNumber = lastCompletedBuildNumber;
+			this.graph = graph;
+		}
+
+	}
+
+}
@@ -23,24 +23,38 @@ package jenkins.plugins.clangscanbuild.reports;
 
 import hudson.model.Run;
 
+/**
+ * The counts of one build in the trend.  Points only refer to their build by number, so trends can be kept and
+ * drawn without loading the builds.
+ */
 public class GraphPoint {
 
-        private Run<?,?> run;
-
-
+	private int buildNumber;
+	private long timestamp;
 	private int bugCount;
-	
+	private int newBugCount;
+	private int fixedBugCount;
+	private int[] categoryCounts;
+
 	public GraphPoint(Run<?, ?> run, int bugCount) {
+		this( run.getNumber(), run.getTimeInMillis(), bugCount, 0, 0, new int[0] );
+	}
+
+	public GraphPoint(int buildNumber, long timestamp, int bugCount, int newBugCount, int fixedBugCount, int[] categoryCounts) {
 		super();
-		this.run = run;
+		this.buildNumber = buildNumber;
+		this.timestamp = timestamp;
 		this.bugCount = bugCount;
+		this.newBugCount = newBugCount;
+		this.fixedBugCount = fixedBugCount;
+		this.categoryCounts = categoryCounts;
 	}
-	
-	public Run<?, ?> getRun() {
-		return run;
+
+	public int getBuildNumber() {
+		return buildNumber;
 	}
-	public void setRun(Run<?, ?> run) {
-		this.run = run;
+	public long getTimestamp() {
+		return timestamp;
 	}
 	public int getBugCount() {
 		return bugCount;
@@ -48,5 +62,18 @@ public class GraphPoint {
 	public void setBugCount(int bugCount) {
 		this.bugCount = bugCount;
 	}
+	public int getNewBugCount() {
+		return newBugCount;
+	}
+	public int getFixedBugCount() {
+		return fixedBugCount;
+	}
+
+	/**
+	 * Bugs per category, in the order of ClangScanBuildTrendIndex.CATEGORIES.
+	 */
+	public int[] getCategoryCounts() {
+		return categoryCounts;
+	}
 
 }
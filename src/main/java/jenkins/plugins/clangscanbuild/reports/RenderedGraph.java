@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.reports;
+
+import hudson.Util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * The rendered trend image and its clickable map, each with an entity tag derived from its content.
+ */
+public class RenderedGraph {
+
+	private final byte[] png;
+	private final String map;
+	private final String pngETag;
+	private final String mapETag;
+
+	public RenderedGraph( byte[] png, String map ) throws IOException {
+		this.png = png;
+		this.map = map;
+		this.pngETag = "\"" + Util.getDigestOf( new ByteArrayInputStream( png ) ) + "\"";
+		this.mapETag = "\"" + Util.getDigestOf( map ) + "\"";
+	}
+
+	public byte[] getPng(){
+		return png;
+	}
+
+	public String getMap(){
+		return map;
+	}
+
+	public String getPngETag(){
+		return pngETag;
+	}
+
+	public String getMapETag(){
+		return mapETag;
+	}
+
+}
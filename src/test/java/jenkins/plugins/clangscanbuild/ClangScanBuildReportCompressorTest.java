@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClangScanBuildReportCompressorTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testReplacesReportsWithCompressedReports() throws Exception{
+		File reportFolder = temporaryFolder.newFolder( "clangScanBuildReports" );
+		write( new File( reportFolder, "report-abc.html" ), report() );
+		write( new File( reportFolder, "StaticAnalyzer/Foo/report-def.html" ), report() );
+		write( new File( reportFolder, "scanview.css" ), "body {}" );
+
+		ClangScanBuildReportCompressor compressor = new ClangScanBuildReportCompressor();
+		compressor.compress( reportFolder );
+
+		Assert.assertFalse( new File( reportFolder, "report-abc.html" ).exists() );
+		Assert.assertEquals( report(), readCompressed( new File( reportFolder, "report-abc.html.gz" ) ) );
+		Assert.assertEquals( report(), readCompressed( new File( reportFolder, "StaticAnalyzer/Foo/report-def.html.gz" ) ) );
+		Assert.assertTrue( new File( reportFolder, "scanview.css" ).exists() );
+		Assert.assertTrue( compressor.getCompressedBytes() < compressor.getUncompressedBytes() );
+	}
+
+	@Test
+	public void testIdenticalReportsCompressToIdenticalFiles() throws Exception{
+		File reportFolder = temporaryFolder.newFolder( "clangScanBuildReports" );
+		write( new File( reportFolder, "report-abc.html" ), report() );
+		write( new File( reportFolder, "report-def.html" ), report() );
+
+		new ClangScanBuildReportCompressor().compress( reportFolder );
+
+		Assert.assertTrue( Arrays.equals( Files.readAllBytes( new File( reportFolder, "report-abc.html.gz" ).toPath() ),
+				Files.readAllBytes( new File( reportFolder, "report-def.html.gz" ).toPath() ) ) );
+	}
+
+	private String report(){
+		StringBuilder report = new StringBuilder( "<!-- BUGTYPE Dead assignment -->\n" );
+		for( int i = 0; i < 1000; i++ ) report.append( "<tr><td class=\"num\">" ).append( i ).append( "</td></tr>\n" );
+		return report.toString();
+	}
+
+	private void write( File file, String contents ) throws IOException {
+		file.getParentFile().mkdirs();
+		Files.write( file.toPath(), contents.getBytes( "UTF-8" ) );
+	}
+
+	private String readCompressed( File file ) throws IOException {
+		InputStream in = new GZIPInputStream( Files.newInputStream( file.toPath() ) );
+		try{
+			ByteArrayOutputStream contents = new ByteArrayOutputStream();
+			byte[] buffer = new byte[ 1024 ];
+			int read;
+			while( ( read = in.read( buffer ) ) != -1 ) contents.write( buffer, 0, read );
+			return new String( contents.toByteArray(), "UTF-8" );
+		}finally{
+			in.close();
+		}
+	}
+
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClangScanBuildReportStoreTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File projectRootDir;
+
+	@Before
+	public void setUp() throws Exception{
+		projectRootDir = temporaryFolder.newFolder( "job" );
+		try{
+			Files.getAttribute( projectRootDir.toPath(), "unix:nlink" );
+		}catch( UnsupportedOperationException e ){
+			Assume.assumeNoException( e );
+		}
+	}
+
+	@Test
+	public void testIdenticalReportsAreStoredOnce() throws Exception{
+		File firstBuild = new File( projectRootDir, "builds/1/clangScanBuildReports" );
+		write( new File( firstBuild, "report-abc.html" ), "abc" );
+		write( new File( firstBuild, "index.html" ), "index 1" );
+
+		ClangScanBuildReportStore store = new ClangScanBuildReportStore( projectRootDir );
+		store.deduplicate( firstBuild );
+		Assert.assertEquals( 2, store.getStoredFiles() );
+		Assert.assertEquals( 0, store.getLinkedFiles() );
+
+		File secondBuild = new File( projectRootDir, "builds/2/clangScanBuildReports" );
+		write( new File( secondBuild, "report-abc.html" ), "abc" );
+		write( new File( secondBuild, "index.html" ), "index 2" );
+
+		store = new ClangScanBuildReportStore( projectRootDir );
+		store.deduplicate( secondBuild );
+		Assert.assertEquals( 1, store.getStoredFiles() );
+		Assert.assertEquals( 1, store.getLinkedFiles() );
+
+		Assert.assertEquals( 3, linkCount( new File( secondBuild, "report-abc.html" ) ) );
+		Assert.assertEquals( "abc", read( new File( secondBuild, "report-abc.html" ) ) );
+		Assert.assertEquals( "index 2", read( new File( secondBuild, "index.html" ) ) );
+	}
+
+	@Test
+	public void testGarbageIsCollectedWhenNoBuildLinksToIt() throws Exception{
+		File firstBuild = new File( projectRootDir, "builds/1/clangScanBuildReports" );
+		write( new File( firstBuild, "report-abc.html" ), "abc" );
+		File secondBuild = new File( projectRootDir, "builds/2/clangScanBuildReports" );
+		write( new File( secondBuild, "report-abc.html" ), "abc" );
+		write( new File( secondBuild, "report-def.html" ), "def" );
+
+		ClangScanBuildReportStore store = new ClangScanBuildReportStore( projectRootDir );
+		store.deduplicate( firstBuild );
+		store.deduplicate( secondBuild );
+		Assert.assertEquals( 0, store.collectGarbage() );
+
+		deleteFolder( secondBuild );
+		Assert.assertEquals( 1, store.collectGarbage() );
+		Assert.assertEquals( "abc", read( new File( firstBuild, "report-abc.html" ) ) );
+
+		deleteFolder( firstBuild );
+		Assert.assertEquals( 1, store.collectGarbage() );
+	}
+
+	private void write( File file, String contents ) throws IOException {
+		file.getParentFile().mkdirs();
+		Files.write( file.toPath(), contents.getBytes( "UTF-8" ) );
+	}
+
+	private String read( File file ) throws IOException {
+		return new String( Files.readAllBytes( file.toPath() ), "UTF-8" );
+	}
+
+	private int linkCount( File file ) throws IOException {
+		return ( (Number) Files.getAttribute( file.toPath(), "unix:nlink" ) ).intValue();
+	}
+
+	private void deleteFolder( File folder ){
+		for( File file : folder.listFiles() ) file.delete();
+		folder.delete();
+	}
+
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild;
+
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+
+import java.util.List;
+
+import jenkins.plugins.clangscanbuild.actions.ClangScanBuildAction;
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildTrendIndex;
+import jenkins.plugins.clangscanbuild.reports.GraphPoint;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+
+public class ClangScanBuildTrendListenerTest {
+
+	@Rule
+	public JenkinsRule j = new JenkinsRule();
+
+	@Test
+	public void testCompletedBuildIsRecordedInIndex() throws Exception{
+		FreeStyleProject project = j.createFreeStyleProject( "Test Project" );
+		project.getBuildersList().add( new TestBuilder(){
+			@Override
+			public boolean perform( AbstractBuild<?,?> build, Launcher launcher, BuildListener listener ){
+				build.addAction( new ClangScanBuildAction( build, 4, true, 0, null, "outputFolderName" ) );
+				return true;
+			}
+		});
+
+		FreeStyleBuild build = j.buildAndAssertSuccess( project );
+
+		List<GraphPoint> points = ClangScanBuildTrendIndex.forProject( project ).read();
+		Assert.assertEquals( 1, points.size() );
+		Assert.assertEquals( build.getNumber(), points.get( 0 ).getBuildNumber() );
+		Assert.assertEquals( 4, points.get( 0 ).getBugCount() );
+	}
+
+	@Test
+	public void testBuildWithoutResultIsNotRecorded() throws Exception{
+		FreeStyleProject project = j.createFreeStyleProject( "Test Project" );
+		j.buildAndAssertSuccess( project );
+
+		Assert.assertNull( ClangScanBuildTrendIndex.forProject( project ).read() );
+	}
+
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.history;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClangScanBuildBugAggregatesTest {
+
+	@Test
+	public void testBugsAreCountedByCategoryAndType(){
+		ClangScanBuildBugSummary summary = new ClangScanBuildBugSummary( 2 );
+		summary.add( bug( "1", "Logic error", "Division by zero", true ) );
+		summary.add( bug( "2", "Logic error", "Dereference of null pointer", false ) );
+		summary.add( bug( "3", "Dead store", "Dead assignment", true ) );
+
+		ClangScanBuildBugAggregates aggregates = ClangScanBuildBugAggregates.compute( summary, 4 );
+
+		Assert.assertEquals( Integer.valueOf( 2 ), aggregates.getBugCountsByCategory().get( "Logic error" ) );
+		Assert.assertEquals( Integer.valueOf( 1 ), aggregates.getBugCountsByCategory().get( "Dead store" ) );
+		Assert.assertEquals( 3, aggregates.getBugCountsByType().size() );
+		Assert.assertEquals( 2, aggregates.getNewBugCount() );
+		// one of the four bugs of the previous build is still there
+		Assert.assertEquals( 3, aggregates.getFixedBugCount() );
+	}
+
+	@Test
+	public void testFirstBuildHasNoFixedBugs(){
+		ClangScanBuildBugSummary summary = new ClangScanBuildBugSummary( 1 );
+		summary.add( bug( "1", null, null, false ) );
+
+		ClangScanBuildBugAggregates aggregates = ClangScanBuildBugAggregates.compute( summary, -1 );
+
+		Assert.assertEquals( 0, aggregates.getFixedBugCount() );
+		Assert.assertEquals( Integer.valueOf( 1 ), aggregates.getBugCountsByCategory().get( "" ) );
+	}
+
+	private ClangScanBuildBug bug( String reportFile, String category, String type, boolean newBug ){
+		ClangScanBuildBug bug = new ClangScanBuildBug();
+		bug.setReportFile( "report-" + reportFile + ".html" );
+		bug.setBugCategory( category );
+		bug.setBugType( type );
+		bug.setNewBug( newBug );
+		return bug;
+	}
+
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.history;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClangScanBuildBugQueryTest {
+
+	@Test
+	public void testSortsPathLengthNumerically(){
+		List<ClangScanBuildBug> bugs = new ClangScanBuildBugQuery( ClangScanBuildBugQuery.SORT_PATH_LENGTH, false, null ).apply( buildBugs() );
+
+		Assert.assertEquals( 2, bugs.get( 0 ).getBugPathLength() );
+		Assert.assertEquals( 9, bugs.get( 1 ).getBugPathLength() );
+		Assert.assertEquals( 10, bugs.get( 2 ).getBugPathLength() );
+	}
+
+	@Test
+	public void testSortsDescending(){
+		List<ClangScanBuildBug> bugs = new ClangScanBuildBugQuery( ClangScanBuildBugQuery.SORT_FILE, true, null ).apply( buildBugs() );
+
+		Assert.assertEquals( "/Classes/C.m", bugs.get( 0 ).getSourceFile() );
+		Assert.assertEquals( "/Classes/A.m", bugs.get( 2 ).getSourceFile() );
+	}
+
+	@Test
+	public void testEqualValuesAreOrderedByReportFile(){
+		List<ClangScanBuildBug> bugs = new ClangScanBuildBugQuery( ClangScanBuildBugQuery.SORT_CATEGORY, false, null ).apply( buildBugs() );
+
+		Assert.assertEquals( "report-a.html", bugs.get( 0 ).getReportFile() );
+		Assert.assertEquals( "report-c.html", bugs.get( 1 ).getReportFile() );
+		Assert.assertEquals( "report-b.html", bugs.get( 2 ).getReportFile() );
+	}
+
+	@Test
+	public void testFiltersIgnoringCase(){
+		List<ClangScanBuildBug> bugs = new ClangScanBuildBugQuery( ClangScanBuildBugQuery.SORT_FILE, false, " LEAK " ).apply( buildBugs() );
+
+		Assert.assertEquals( 1, bugs.size() );
+		Assert.assertEquals( "report-b.html", bugs.get( 0 ).getReportFile() );
+	}
+
+	@Test
+	public void testKeyIdentifiesTheResult(){
+		Assert.assertEquals( new ClangScanBuildBugQuery( null, false, null ).getKey(), new ClangScanBuildBugQuery( ClangScanBuildBugQuery.SORT_FILE, false, " " ).getKey() );
+		Assert.assertEquals( new ClangScanBuildBugQuery( "unknown", true, "Leak" ).getKey(), new ClangScanBuildBugQuery( ClangScanBuildBugQuery.SORT_FILE, true, "leak" ).getKey() );
+		Assert.assertFalse( new ClangScanBuildBugQuery( ClangScanBuildBugQuery.SORT_FILE, true, null ).getKey().equals( new ClangScanBuildBugQuery( ClangScanBuildBugQuery.SORT_FILE, false, null ).getKey() ) );
+		Assert.assertFalse( new ClangScanBuildBugQuery( ClangScanBuildBugQuery.SORT_TYPE, false, null ).getKey().equals( new ClangScanBuildBugQuery( ClangScanBuildBugQuery.SORT_CATEGORY, false, null ).getKey() ) );
+	}
+
+	private List<ClangScanBuildBug> buildBugs(){
+		List<ClangScanBuildBug> bugs = new ArrayList<ClangScanBuildBug>();
+		bugs.add( buildBug( "report-a.html", "/Classes/A.m", "Dead store", "Dead assignment", 10 ) );
+		bugs.add( buildBug( "report-b.html", "/Classes/B.m", "Memory error", "Memory leak", 2 ) );
+		bugs.add( buildBug( "report-c.html", "/Classes/C.m", "Dead store", "Dead assignment", 9 ) );
+		return bugs;
+	}
+
+	private ClangScanBuildBug buildBug( String reportFile, String sourceFile, String category, String type, int pathLength ){
+		ClangScanBuildBug bug = new ClangScanBuildBug();
+		bug.setReportFile( reportFile );
+		bug.setSourceFile( sourceFile );
+		bug.setBugCategory( category );
+		bug.setBugType( type );
+		bug.setBugPathLength( pathLength );
+		return bug;
+	}
+
+}
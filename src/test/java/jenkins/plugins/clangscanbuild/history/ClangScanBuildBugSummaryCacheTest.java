@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.history;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClangScanBuildBugSummaryCacheTest {
+
+	@Test
+	public void testCountsHitsAndMisses(){
+		ClangScanBuildBugSummaryCache cache = new ClangScanBuildBugSummaryCache( 100 );
+		ClangScanBuildBugSummary summary = buildSummary( 1, 10 );
+
+		Assert.assertNull( cache.get( "job#1" ) );
+		cache.put( "job#1", summary );
+		Assert.assertSame( summary, cache.get( "job#1" ) );
+		Assert.assertSame( summary, cache.get( "job#1" ) );
+
+		Assert.assertEquals( 2, cache.getHits() );
+		Assert.assertEquals( 1, cache.getMisses() );
+		Assert.assertEquals( 2.0 / 3, cache.getHitRate(), 0.0001 );
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsedWhenBugLimitIsExceeded(){
+		ClangScanBuildBugSummaryCache cache = new ClangScanBuildBugSummaryCache( 100 );
+		cache.put( "job#1", buildSummary( 1, 40 ) );
+		cache.put( "job#2", buildSummary( 2, 40 ) );
+		cache.get( "job#1" );
+		cache.put( "job#3", buildSummary( 3, 40 ) );
+
+		Assert.assertNotNull( cache.get( "job#1" ) );
+		Assert.assertNull( cache.get( "job#2" ) );
+		Assert.assertNotNull( cache.get( "job#3" ) );
+		Assert.assertEquals( 80, cache.getCachedBugs() );
+		Assert.assertEquals( 1, cache.getEvictions() );
+	}
+
+	@Test
+	public void testSkipsSummariesLargerThanTheCache(){
+		ClangScanBuildBugSummaryCache cache = new ClangScanBuildBugSummaryCache( 100 );
+		cache.put( "job#1", buildSummary( 1, 10 ) );
+		cache.put( "job#2", buildSummary( 2, 101 ) );
+
+		Assert.assertNull( cache.get( "job#2" ) );
+		Assert.assertNotNull( cache.get( "job#1" ) );
+	}
+
+	@Test
+	public void testRemoveAndReplace(){
+		ClangScanBuildBugSummaryCache cache = new ClangScanBuildBugSummaryCache( 100 );
+		cache.put( "job#1", buildSummary( 1, 10 ) );
+		cache.put( "job#1", buildSummary( 1, 20 ) );
+		Assert.assertEquals( 20, cache.getCachedBugs() );
+
+		cache.remove( "job#1" );
+		Assert.assertEquals( 0, cache.getCachedBugs() );
+		Assert.assertEquals( 0, cache.getSize() );
+	}
+
+	private ClangScanBuildBugSummary buildSummary( int buildNumber, int bugCount ){
+		ClangScanBuildBugSummary summary = new ClangScanBuildBugSummary( buildNumber );
+		for( int i = 0; i < bugCount; i++ ){
+			ClangScanBuildBug bug = new ClangScanBuildBug();
+			bug.setReportFile( "report-" + i + ".html" );
+			summary.add( bug );
+		}
+		return summary;
+	}
+
+}
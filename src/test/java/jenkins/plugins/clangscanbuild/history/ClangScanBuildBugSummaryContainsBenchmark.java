@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.history;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Times the new bug detection of a build against the summary of the previous build, which looks up every
+ * bug of the build with ClangScanBuildBugSummary.contains.  The indexed lookup is compared with the loop
+ * over all bugs of the previous build that contains used before.
+ * 
+ * Half of the bugs of the build also exist in the previous build.  The loop is quadratic, so above 10k
+ * bugs it is only timed for 1000 bugs spread over the build and scaled up to all of them.
+ * 
+ * gradle benchmark -Pbenchmark=ClangScanBuildBugSummaryContainsBenchmark -Pargs="1000 10000 100000"
+ */
+public class ClangScanBuildBugSummaryContainsBenchmark {
+
+	private static final int ROUNDS = 5;
+	private static final int LOOP_SAMPLE = 1000;
+
+	public static void main( String[] args ){
+		int[] sizes = { 1000, 10000, 100000 };
+		if( args.length > 0 ){
+			sizes = new int[args.length];
+			for( int i = 0; i < args.length; i++ ) sizes[i] = Integer.parseInt( args[i] );
+		}
+
+		System.out.println( String.format( "%10s %14s %14s", "bugs", "indexed (ms)", "loop (ms)" ) );
+		for( int size : sizes ){
+			List<ClangScanBuildBug> previous = bugs( 0, size );
+			List<ClangScanBuildBug> current = bugs( size / 2, size );
+
+			double indexed = Double.MAX_VALUE;
+			double loop = Double.MAX_VALUE;
+			for( int round = 0; round < ROUNDS; round++ ){
+				indexed = Math.min( indexed, timeIndexed( previous, current ) );
+				loop = Math.min( loop, timeLoop( previous, current ) );
+			}
+			System.out.println( String.format( "%10d %14.2f %14.2f", size, indexed, loop ) );
+		}
+	}
+
+	// Includes building the indexes, a summary is only asked once per build
+	private static double timeIndexed( List<ClangScanBuildBug> previous, List<ClangScanBuildBug> current ){
+		ClangScanBuildBugSummary summary = new ClangScanBuildBugSummary( 1 );
+		summary.addBugs( previous );
+
+		long start = System.nanoTime();
+		int found = 0;
+		for( ClangScanBuildBug bug : current ){
+			if( summary.contains( bug ) ) found++;
+		}
+		long elapsed = System.nanoTime() - start;
+		check( found, current.size() / 2 );
+		return elapsed / 1e6;
+	}
+
+	private static double timeLoop( List<ClangScanBuildBug> previous, List<ClangScanBuildBug> current ){
+		int step = current.size() > 10000 ? current.size() / LOOP_SAMPLE : 1;
+
+		long start = System.nanoTime();
+		int sampled = 0;
+		int found = 0;
+		for( int i = 0; i < current.size(); i += step ){
+			ClangScanBuildBug bug = current.get( i );
+			sampled++;
+			for( ClangScanBuildBug candidate : previous ){
+				if( bug.getBugDescription().equals( candidate.getBugDescription() ) ){
+					found++;
+					break;
+				}
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		check( found, ( current.size() / 2 + step - 1 ) / step );
+		return elapsed / 1e6 * current.size() / sampled;
+	}
+
+	private static void check( int found, int expected ){
+		if( found != expected ) throw new IllegalStateException( "Found " + found + " bugs, expected " + expected );
+	}
+
+	// Bugs spread over 200 source files and a handful of checkers, numbered from first
+	private static List<ClangScanBuildBug> bugs( int first, int count ){
+		List<ClangScanBuildBug> bugs = new ArrayList<ClangScanBuildBug>( count );
+		for( int i = first; i < first + count; i++ ){
+			ClangScanBuildBug bug = new ClangScanBuildBug();
+			bug.setSourceFile( "/Classes/Source" + ( i % 200 ) + ".m" );
+			bug.setBugCategory( "Logic error" );
+			bug.setBugType( "Type " + ( i % 7 ) );
+			bug.setBugDescription( "Value stored to 'value" + i + "' is never read" );
+			bug.setBugLine( i );
+			bug.setIssueHash( 0x9e3779b97f4a7c15L * ( i + 1 ) );
+			bugs.add( bug );
+		}
+		return bugs;
+	}
+
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.history;
+
+import hudson.model.AbstractBuild;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the size of a bug summary and the time it takes to write and load it in the binary format with
+ * the XStream XML format that earlier versions of this plugin recorded.  Both are loaded through
+ * ClangScanBuildBugSummaryFile.read, the way the build action loads them.  Times are the best of five rounds.
+ * 
+ * gradle benchmark -Pbenchmark=ClangScanBuildBugSummaryFileBenchmark -Pargs="50000"
+ */
+public class ClangScanBuildBugSummaryFileBenchmark {
+
+	private static final int ROUNDS = 5;
+
+	public static void main( String[] args ) throws IOException {
+		int size = args.length > 0 ? Integer.parseInt( args[0] ) : 50000;
+		ClangScanBuildBugSummary summary = summary( size );
+
+		System.out.println( String.format( "%d bugs", size ) );
+		System.out.println( String.format( "%8s %12s %12s %12s", "format", "size (KB)", "write (ms)", "load (ms)" ) );
+
+		double write = Double.MAX_VALUE;
+		byte[] binary = null;
+		for( int round = 0; round < ROUNDS; round++ ){
+			long start = System.nanoTime();
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			ClangScanBuildBugSummaryFile.write( summary, out );
+			write = Math.min( write, ( System.nanoTime() - start ) / 1e6 );
+			binary = out.toByteArray();
+		}
+		print( "binary", binary, write, size );
+
+		write = Double.MAX_VALUE;
+		byte[] xml = null;
+		for( int round = 0; round < ROUNDS; round++ ){
+			long start = System.nanoTime();
+			String text = AbstractBuild.XSTREAM.toXML( summary );
+			xml = text.getBytes( "UTF-8" );
+			write = Math.min( write, ( System.nanoTime() - start ) / 1e6 );
+		}
+		print( "xml", xml, write, size );
+	}
+
+	private static void print( String format, byte[] file, double write, int size ) throws IOException {
+		double load = Double.MAX_VALUE;
+		for( int round = 0; round < ROUNDS; round++ ){
+			long start = System.nanoTime();
+			ClangScanBuildBugSummary read = ClangScanBuildBugSummaryFile.read( new ByteArrayInputStream( file ) );
+			load = Math.min( load, ( System.nanoTime() - start ) / 1e6 );
+			if( read.getBugCount() != size ) throw new IllegalStateException( "Loaded " + read.getBugCount() + " bugs" );
+		}
+		System.out.println( String.format( "%8s %12d %12.2f %12.2f", format, file.length / 1024, write, load ) );
+	}
+
+	// Bugs spread over 500 source files, 20 checkers and 5000 functions, each with its own report and description
+	private static ClangScanBuildBugSummary summary( int size ){
+		List<ClangScanBuildBug> bugs = new ArrayList<ClangScanBuildBug>( size );
+		for( int i = 0; i < size; i++ ){
+			ClangScanBuildBug bug = new ClangScanBuildBug();
+			bug.setReportFile( String.format( "report-%06x.html", i ) );
+			bug.setSourceFile( "/Users/build/workspace/Project/Classes/Module" + ( i % 50 ) + "/Source" + ( i % 500 ) + ".m" );
+			bug.setBugCategory( i % 3 == 0 ? "Dead store" : "Logic error" );
+			bug.setBugType( "Bug type " + ( i % 20 ) );
+			bug.setCheckerName( "core.Checker" + ( i % 20 ) );
+			bug.setBugDescription( "Value stored to 'value" + i + "' is never read" );
+			bug.setFunctionName( "function" + ( i % 5000 ) );
+			bug.setBugLine( i % 2000 );
+			bug.setBugColumn( i % 80 );
+			bug.setBugPathLength( i % 10 );
+			bug.setIssueHash( 0x9e3779b97f4a7c15L * ( i + 1 ) );
+			bugs.add( bug );
+		}
+
+		ClangScanBuildBugSummary summary = new ClangScanBuildBugSummary( 42 );
+		summary.addBugs( bugs );
+		return summary;
+	}
+
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.history;
+
+import hudson.model.AbstractBuild;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClangScanBuildBugSummaryFileTest {
+
+	@Test
+	public void testRoundTrip() throws Exception{
+		ClangScanBuildBugSummary summary = buildSummary( 100 );
+
+		ClangScanBuildBugSummary read = ClangScanBuildBugSummaryFile.read( new ByteArrayInputStream( write( summary ) ) );
+
+		Assert.assertEquals( 42, read.getBuildNumber() );
+		Assert.assertEquals( 100, read.getBugCount() );
+
+		Map<String,ClangScanBuildBug> bugsByReport = new HashMap<String,ClangScanBuildBug>();
+		for( ClangScanBuildBug bug : read.getBugs() ) bugsByReport.put( bug.getReportFile(), bug );
+		for( ClangScanBuildBug expected : summary.getBugs() ){
+			ClangScanBuildBug actual = bugsByReport.get( expected.getReportFile() );
+			Assert.assertEquals( expected, actual );
+			Assert.assertEquals( expected.getFunctionName(), actual.getFunctionName() );
+			Assert.assertEquals( expected.getBugLine(), actual.getBugLine() );
+			Assert.assertEquals( expected.getBugColumn(), actual.getBugColumn() );
+			Assert.assertEquals( expected.getBugPathLength(), actual.getBugPathLength() );
+			Assert.assertEquals( expected.getCheckerName(), actual.getCheckerName() );
+			Assert.assertEquals( expected.isNewBug(), actual.isNewBug() );
+			Assert.assertEquals( expected.getIssueHash(), actual.getIssueHash() );
+		}
+	}
+
+	@Test
+	public void testRepeatedStringsAreWrittenOnce() throws Exception{
+		byte[] oneBug = write( buildSummary( 1 ) );
+		byte[] manyBugs = write( buildSummary( 1000 ) );
+
+		// only the report file, the line and the issue hash differ between the bugs
+		Assert.assertTrue( "Binary summary is " + manyBugs.length + " bytes", manyBugs.length < oneBug.length + 1000 * 64 );
+	}
+
+	@Test
+	public void testStreamVisitsEveryBug() throws Exception{
+		final Map<String,ClangScanBuildBug> visited = new HashMap<String,ClangScanBuildBug>();
+		int buildNumber = ClangScanBuildBugSummaryFile.stream( new ByteArrayInputStream( write( buildSummary( 100 ) ) ),
+				new ClangScanBuildBugSummaryFile.BugVisitor(){
+			public void visit( ClangScanBuildBug bug ){
+				visited.put( bug.getReportFile(), bug );
+			}
+		});
+
+		Assert.assertEquals( 42, buildNumber );
+		Assert.assertEquals( 100, visited.size() );
+		Assert.assertEquals( 99, visited.get( "report-100063.html" ).getBugLine() );
+	}
+
+	@Test
+	public void testReadsXmlSummary() throws Exception{
+		ClangScanBuildBugSummary summary = buildSummary( 10 );
+		byte[] xml = AbstractBuild.XSTREAM.toXML( summary ).getBytes( "UTF-8" );
+
+		ClangScanBuildBugSummary read = ClangScanBuildBugSummaryFile.read( new ByteArrayInputStream( xml ) );
+
+		Assert.assertEquals( 42, read.getBuildNumber() );
+		Assert.assertEquals( 10, read.getBugCount() );
+	}
+
+	private ClangScanBuildBugSummary buildSummary( int bugCount ){
+		ClangScanBuildBugSummary summary = new ClangScanBuildBugSummary( 42 );
+		for( int i = 0; i < bugCount; i++ ){
+			ClangScanBuildBug bug = new ClangScanBuildBug();
+			bug.setReportFile( "report-" + Integer.toHexString( 0x100000 + i ) + ".html" );
+			bug.setSourceFile( "/Classes/File" + ( i % 10 ) + ".m" );
+			bug.setBugType( "Dead assignment" );
+			bug.setBugCategory( "Dead store" );
+			bug.setBugDescription( "Value stored to 'x' is never read" );
+			bug.setFunctionName( i % 3 == 0 ? null : "main" );
+			bug.setBugLine( i );
+			bug.setBugColumn( 5 );
+			bug.setBugPathLength( 1 );
+			bug.setCheckerName( "deadcode.DeadStores" );
+			bug.setNewBug( i % 2 == 0 );
+			bug.setIssueHash( 0x1234567800000000L + i );
+			summary.add( bug );
+		}
+		return summary;
+	}
+
+	private byte[] write( ClangScanBuildBugSummary summary ) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ClangScanBuildBugSummaryFile.write( summary, out );
+		return out.toByteArray();
+	}
+
+}
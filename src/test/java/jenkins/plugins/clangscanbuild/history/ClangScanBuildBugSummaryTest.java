@@ -22,7 +22,9 @@
 package jenkins.plugins.clangscanbuild.history;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -40,6 +42,78 @@ public class ClangScanBuildBugSummaryTest {
 		Assert.assertFalse( summary.contains( buildClangScanBuildBug( "four" ) ) );
 	}
 	
+	@Test
+	public void testBugsShareStrings(){
+		ClangScanBuildBugSummary summary = new ClangScanBuildBugSummary( 1 );
+		ClangScanBuildBug first = buildClangScanBuildBug( "one" );
+		first.setSourceFile( new String( "/Classes/Foo.m" ) );
+		ClangScanBuildBug second = buildClangScanBuildBug( "two" );
+		second.setSourceFile( new String( "/Classes/Foo.m" ) );
+
+		summary.addBugs( Arrays.asList( first, second ) );
+
+		Assert.assertSame( first.getSourceFile(), second.getSourceFile() );
+		Assert.assertEquals( 2, summary.getBugCount() );
+	}
+
+	@Test
+	public void testContainsAfterAdd(){
+		ClangScanBuildBugSummary summary = new ClangScanBuildBugSummary( 1 );
+		summary.add( buildClangScanBuildBug( "one" ) );
+		Assert.assertFalse( summary.contains( buildClangScanBuildBug( "two" ) ) );
+
+		summary.add( buildClangScanBuildBug( "two" ) );
+		Assert.assertTrue( summary.contains( buildClangScanBuildBug( "two" ) ) );
+	}
+	
+	@Test
+	public void testContainsMatchesIssueHash(){
+		ClangScanBuildBugSummary summary = new ClangScanBuildBugSummary( 1 );
+		summary.add( buildClangScanBuildBug( "Value stored to 'x' is never read", "d41d8cd98f00b204e9800998ecf8427e" ) );
+
+		Assert.assertTrue( summary.contains( buildClangScanBuildBug( "Value stored to 'y' is never read", "d41d8cd98f00b204e9800998ecf8427e" ) ) );
+		Assert.assertFalse( summary.contains( buildClangScanBuildBug( "Value stored to 'x' is never read", "0cc175b9c0f1b6a831c399e269772661" ) ) );
+	}
+	
+	@Test
+	public void testContainsFallsBackToContextHashWithoutIssueHash(){
+		ClangScanBuildBugSummary summary = new ClangScanBuildBugSummary( 1 );
+		summary.add( buildClangScanBuildBug( "one" ) );
+
+		Assert.assertTrue( summary.contains( buildClangScanBuildBug( "one", "d41d8cd98f00b204e9800998ecf8427e" ) ) );
+	}
+	
+	@Test
+	public void testContainsMatchesBugsRecordedWithoutFunctionName(){
+		// summaries recorded before the upgrade have neither a function name nor an issue hash
+		ClangScanBuildBug oldBug = buildClangScanBuildBug( "Value stored to 'x' is never read" );
+		oldBug.setSourceFile( "/Classes/Foo.m" );
+		ClangScanBuildBugSummary summary = new ClangScanBuildBugSummary( 1 );
+		summary.add( oldBug );
+
+		ClangScanBuildBug newBug = buildClangScanBuildBug( "Value stored to 'x' is never read", "d41d8cd98f00b204e9800998ecf8427e" );
+		newBug.setSourceFile( "/Classes/Foo.m" );
+		newBug.setFunctionName( "main" );
+
+		Assert.assertTrue( summary.contains( newBug ) );
+	}
+
+	@Test
+	public void testFindingsWithoutReportFileAreKeptApart(){
+		// bugs read from plist files have no report file, two findings in one file differ only in their position
+		ClangScanBuildBug first = buildClangScanBuildBug( "Value stored to 'x' is never read" );
+		first.setSourceFile( "/Classes/Foo.m" );
+		first.setBugLine( 12 );
+		ClangScanBuildBug second = buildClangScanBuildBug( "Value stored to 'x' is never read" );
+		second.setSourceFile( "/Classes/Foo.m" );
+		second.setBugLine( 40 );
+
+		ClangScanBuildBugSummary summary = new ClangScanBuildBugSummary( 1 );
+		Assert.assertTrue( summary.add( first ) );
+		Assert.assertTrue( summary.add( second ) );
+		Assert.assertEquals( 2, summary.getBugCount() );
+	}
+
 	@Test
 	public void testAddBugs(){
 		
@@ -91,10 +165,32 @@ public class ClangScanBuildBugSummaryTest {
 		Assert.assertFalse( summary.add( buildClangScanBuildBug( "two" ) ) );
 	}
 	
+	@Test
+	public void testQueryResultsAreKeptUntilBugsAreAdded(){
+		ClangScanBuildBugSummary summary = new ClangScanBuildBugSummary( 1 );
+		summary.addBugs( Arrays.asList( buildClangScanBuildBug( "one" ), buildClangScanBuildBug( "two" ) ) );
+
+		List<ClangScanBuildBug> first = summary.query( new ClangScanBuildBugQuery( ClangScanBuildBugQuery.SORT_DESCRIPTION, false, null ) );
+		Assert.assertEquals( 2, first.size() );
+		Assert.assertSame( first, summary.query( new ClangScanBuildBugQuery( ClangScanBuildBugQuery.SORT_DESCRIPTION, false, null ) ) );
+		Assert.assertEquals( "two", summary.query( new ClangScanBuildBugQuery( ClangScanBuildBugQuery.SORT_DESCRIPTION, true, null ) ).get( 0 ).getBugDescription() );
+
+		summary.add( buildClangScanBuildBug( "three" ) );
+		List<ClangScanBuildBug> afterAdd = summary.query( new ClangScanBuildBugQuery( ClangScanBuildBugQuery.SORT_DESCRIPTION, false, null ) );
+		Assert.assertEquals( 3, afterAdd.size() );
+		Assert.assertEquals( "three", afterAdd.get( 1 ).getBugDescription() );
+	}
+
 	private ClangScanBuildBug buildClangScanBuildBug( String description ){
 		ClangScanBuildBug bug = new ClangScanBuildBug();
 		bug.setBugDescription( description );
 		return bug;
 	}
 	
+	private ClangScanBuildBug buildClangScanBuildBug( String description, String issueHash ){
+		ClangScanBuildBug bug = buildClangScanBuildBug( description );
+		bug.setIssueHash( ClangScanBuildBug.parseIssueHash( issueHash ) );
+		return bug;
+	}
+	
 }
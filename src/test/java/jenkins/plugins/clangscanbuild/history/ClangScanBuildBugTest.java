@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.history;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClangScanBuildBugTest {
+
+	@Test
+	public void testParseNumber(){
+		Assert.assertEquals( 12, ClangScanBuildBug.parseNumber( "12" ) );
+		Assert.assertEquals( 12, ClangScanBuildBug.parseNumber( " 12 " ) );
+		Assert.assertEquals( 0, ClangScanBuildBug.parseNumber( "" ) );
+		Assert.assertEquals( 0, ClangScanBuildBug.parseNumber( "twelve" ) );
+		Assert.assertEquals( 0, ClangScanBuildBug.parseNumber( null ) );
+	}
+
+	@Test
+	public void testCategoryOfChecker(){
+		Assert.assertEquals( "Dead store", ClangScanBuildBug.categoryOfChecker( "deadcode.DeadStores" ) );
+		Assert.assertEquals( "Dead store", ClangScanBuildBug.categoryOfChecker( "deadcode" ) );
+		Assert.assertEquals( "Logic error", ClangScanBuildBug.categoryOfChecker( "core.NullDereference" ) );
+		Assert.assertEquals( "Memory error", ClangScanBuildBug.categoryOfChecker( "unix.Malloc" ) );
+		Assert.assertEquals( "Unix API", ClangScanBuildBug.categoryOfChecker( "unix.API" ) );
+		Assert.assertEquals( "Unix API", ClangScanBuildBug.categoryOfChecker( "unix.MallocLike" ) );
+		Assert.assertNull( ClangScanBuildBug.categoryOfChecker( "alpha.core.CastSize" ) );
+		Assert.assertNull( ClangScanBuildBug.categoryOfChecker( "coreish.Checker" ) );
+		Assert.assertNull( ClangScanBuildBug.categoryOfChecker( null ) );
+	}
+
+	@Test
+	public void testHashCodeFollowsSetters(){
+		ClangScanBuildBug bug = new ClangScanBuildBug();
+		bug.setSourceFile( "/Classes/Foo.m" );
+		bug.setReportFile( "report-abc.html" );
+		int hashCode = bug.hashCode();
+
+		bug.setBugPathLength( 3 );
+		Assert.assertEquals( hashCode, bug.hashCode() );
+
+		bug.setBugLine( 42 );
+		Assert.assertFalse( hashCode == bug.hashCode() );
+		hashCode = bug.hashCode();
+
+		bug.setSourceFile( "/Classes/Bar.m" );
+		Assert.assertFalse( hashCode == bug.hashCode() );
+
+		ClangScanBuildBug copy = new ClangScanBuildBug( bug );
+		Assert.assertEquals( bug, copy );
+		Assert.assertEquals( bug.hashCode(), copy.hashCode() );
+	}
+
+	@Test
+	public void testFingerprintsAreRecomputedAfterSerialization() throws Exception{
+		ClangScanBuildBug bug = new ClangScanBuildBug();
+		bug.setSourceFile( "/Classes/Foo.m" );
+		bug.setBugDescription( "Value stored to 'x' is never read" );
+		bug.setBugLine( 42 );
+		long contextHash = bug.getContextHash();
+		int hashCode = bug.hashCode();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream( bytes );
+		out.writeObject( bug );
+		out.close();
+		ClangScanBuildBug read = (ClangScanBuildBug) new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+
+		Assert.assertEquals( bug, read );
+		Assert.assertEquals( hashCode, read.hashCode() );
+		Assert.assertEquals( contextHash, read.getContextHash() );
+
+		read.setBugDescription( "Value stored to 'y' is never read" );
+		Assert.assertFalse( contextHash == read.getContextHash() );
+		Assert.assertFalse( hashCode == read.hashCode() );
+	}
+
+}
@@ -56,6 +56,22 @@ public class ClangScanBuildHistoryGathererImplTest {
 		Assert.assertEquals( 2, summaries.size() );
 	}
 
+	@Test
+	public void testOnlyNumberOfBuildsToGatherAreReturned() throws Exception{
+		FreeStyleProject project = j.createFreeStyleProject( "Test Project" );
+
+		FreeStyleBuild lastBuild = null;
+		for( int i = 1; i <= 7; i++ ){
+			lastBuild = performBuildWithClangAction( project, i, "outputFolderName-" + i );
+		}
+
+		List<GraphPoint> summaries = classUnderTest.gatherHistoryDataSet( lastBuild );
+
+		Assert.assertEquals( 5, summaries.size() );
+		Assert.assertEquals( 7, summaries.get( 0 ).getBugCount() );
+		Assert.assertEquals( 3, summaries.get( 4 ).getBugCount() );
+	}
+
 	@Test
 	public void testFirstBuildDoesNotFail() throws Exception{
 		FreeStyleProject project = j.createFreeStyleProject( "Test Project" );
@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.history;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+
+import java.util.List;
+
+import jenkins.plugins.clangscanbuild.actions.ClangScanBuildAction;
+import jenkins.plugins.clangscanbuild.reports.GraphPoint;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class ClangScanBuildTrendCacheTest {
+
+	private ClangScanBuildTrendCache classUnderTest = new ClangScanBuildTrendCache( 3 );
+
+	@Rule
+	public JenkinsRule j = new JenkinsRule();
+
+	@Test
+	public void testMissingIndexIsRebuiltFromBuilds() throws Exception{
+		FreeStyleProject project = j.createFreeStyleProject( "Test Project" );
+		performBuildWithClangAction( project, 1 );
+		project.scheduleBuild2(0).get();
+		performBuildWithClangAction( project, 3 );
+
+		List<GraphPoint> points = classUnderTest.getPoints( project );
+
+		Assert.assertEquals( 2, points.size() );
+		Assert.assertEquals( 3, points.get( 0 ).getBuildNumber() );
+		Assert.assertEquals( 3, points.get( 0 ).getBugCount() );
+		Assert.assertTrue( ClangScanBuildTrendIndex.forProject( project ).getFile().isFile() );
+	}
+
+	@Test
+	public void testFixedBugsAreCountedAgainstTheBuildRightBefore() throws Exception{
+		FreeStyleProject project = j.createFreeStyleProject( "Test Project" );
+		performBuildWithClangAction( project, 5 );
+		performBuildWithClangAction( project, 4 );
+		project.scheduleBuild2(0).get();
+		performBuildWithClangAction( project, 1 );
+
+		List<GraphPoint> points = classUnderTest.getPoints( project );
+
+		// the build before the last one has no scan-build result, like the publisher nothing is counted as fixed
+		Assert.assertEquals( 0, points.get( 0 ).getFixedBugCount() );
+		Assert.assertEquals( 1, points.get( 1 ).getFixedBugCount() );
+	}
+
+	@Test
+	public void testCompletedBuildIsAddedToCachedPoints() throws Exception{
+		FreeStyleProject project = j.createFreeStyleProject( "Test Project" );
+		performBuildWithClangAction( project, 1 );
+		Assert.assertEquals( 1, classUnderTest.getPoints( project ).size() );
+
+		// the point is not in the index, so it can only come from the cache
+		FreeStyleBuild build2 = performBuildWithClangAction( project, 2 );
+		classUnderTest.buildCompleted( project, new GraphPoint( build2, 2 ) );
+
+		List<GraphPoint> points = classUnderTest.getPoints( project );
+		Assert.assertEquals( 2, points.size() );
+		Assert.assertEquals( build2.getNumber(), points.get( 0 ).getBuildNumber() );
+	}
+
+	@Test
+	public void testBuildsCompletingOutOfOrderAreSortedByNumber() throws Exception{
+		FreeStyleProject project = j.createFreeStyleProject( "Test Project" );
+		performBuildWithClangAction( project, 1 );
+		performBuildWithClangAction( project, 2 );
+		Assert.assertEquals( 2, classUnderTest.getPoints( project ).size() );
+
+		classUnderTest.buildCompleted( project, point( 4 ) );
+		classUnderTest.buildCompleted( project, point( 3 ) );
+
+		List<GraphPoint> points = classUnderTest.getPoints( project );
+		Assert.assertEquals( 3, points.size() );
+		Assert.assertEquals( 4, points.get( 0 ).getBuildNumber() );
+		Assert.assertEquals( 3, points.get( 1 ).getBuildNumber() );
+		Assert.assertEquals( 2, points.get( 2 ).getBuildNumber() );
+	}
+
+	@Test
+	public void testInvalidateByFullName() throws Exception{
+		FreeStyleProject project = j.createFreeStyleProject( "Test Project" );
+		performBuildWithClangAction( project, 1 );
+		classUnderTest.getPoints( project );
+		Assert.assertEquals( 1, classUnderTest.getSize() );
+
+		classUnderTest.invalidate( project.getFullName() );
+
+		Assert.assertEquals( 0, classUnderTest.getSize() );
+	}
+
+	@Test
+	public void testPointsAreLimitedToNumberOfBuilds() throws Exception{
+		FreeStyleProject project = j.createFreeStyleProject( "Test Project" );
+		for( int i = 0; i < 5; i++ ){
+			performBuildWithClangAction( project, i );
+		}
+
+		Assert.assertEquals( 3, classUnderTest.getPoints( project ).size() );
+	}
+
+	@Test
+	public void testDeletedBuildIsDropped() throws Exception{
+		FreeStyleProject project = j.createFreeStyleProject( "Test Project" );
+		performBuildWithClangAction( project, 1 );
+		FreeStyleBuild build2 = performBuildWithClangAction( project, 2 );
+		Assert.assertEquals( 2, classUnderTest.getPoints( project ).size() );
+
+		build2.delete();
+		classUnderTest.invalidate( project );
+
+		Assert.assertEquals( 1, classUnderTest.getPoints( project ).size() );
+	}
+
+	private GraphPoint point( int buildNumber ){
+		return new GraphPoint( buildNumber, 0, buildNumber, 0, 0, new int[ ClangScanBuildTrendIndex.CATEGORIES.length ] );
+	}
+
+	private FreeStyleBuild performBuildWithClangAction( FreeStyleProject project, int bugCount ) throws Exception {
+		FreeStyleBuild build = project.scheduleBuild2(0).get();
+		build.addAction( new ClangScanBuildAction( build, bugCount, true, 0, null, "outputFolderName" ) );
+		return build;
+	}
+
+}
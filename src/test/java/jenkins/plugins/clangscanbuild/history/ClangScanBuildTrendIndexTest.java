@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.history;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import jenkins.plugins.clangscanbuild.reports.GraphPoint;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClangScanBuildTrendIndexTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testRecordsAreReadInBuildOrder() throws Exception{
+		ClangScanBuildTrendIndex index = new ClangScanBuildTrendIndex( new File( folder.getRoot(), ClangScanBuildTrendIndex.FILENAME ) );
+		index.write( Arrays.asList( point( 1, 10 ), point( 3, 30 ) ) );
+		// the index exists, so it is not rebuilt from the builds of a project
+		index.append( null, point( 2, 20 ) );
+
+		List<GraphPoint> points = index.read();
+
+		Assert.assertEquals( 3, points.size() );
+		Assert.assertEquals( 1, points.get( 0 ).getBuildNumber() );
+		Assert.assertEquals( 2, points.get( 1 ).getBuildNumber() );
+		Assert.assertEquals( 20, points.get( 1 ).getBugCount() );
+		Assert.assertEquals( 7, points.get( 1 ).getNewBugCount() );
+		Assert.assertEquals( 5, points.get( 1 ).getFixedBugCount() );
+		Assert.assertEquals( 2, points.get( 1 ).getCategoryCounts()[ ClangScanBuildTrendIndex.categoryIndex( "Dead store" ) ] );
+		Assert.assertEquals( 3, points.get( 2 ).getBuildNumber() );
+	}
+
+	@Test
+	public void testDeletedBuildIsDropped() throws Exception{
+		ClangScanBuildTrendIndex index = new ClangScanBuildTrendIndex( new File( folder.getRoot(), ClangScanBuildTrendIndex.FILENAME ) );
+		index.write( Arrays.asList( point( 1, 10 ), point( 2, 20 ) ) );
+
+		index.remove( 1 );
+
+		List<GraphPoint> points = index.read();
+		Assert.assertEquals( 1, points.size() );
+		Assert.assertEquals( 2, points.get( 0 ).getBuildNumber() );
+	}
+
+	@Test
+	public void testPartialRecordIsIgnored() throws Exception{
+		File file = new File( folder.getRoot(), ClangScanBuildTrendIndex.FILENAME );
+		ClangScanBuildTrendIndex index = new ClangScanBuildTrendIndex( file );
+		index.write( Arrays.asList( point( 1, 10 ), point( 2, 20 ) ) );
+
+		RandomAccessFile truncated = new RandomAccessFile( file, "rw" );
+		try{
+			truncated.setLength( truncated.length() - 3 );
+		}finally{
+			truncated.close();
+		}
+
+		Assert.assertEquals( 1, index.read().size() );
+
+		index.append( null, point( 3, 30 ) );
+
+		List<GraphPoint> points = index.read();
+		Assert.assertEquals( 2, points.size() );
+		Assert.assertEquals( 3, points.get( 1 ).getBuildNumber() );
+		Assert.assertEquals( 30, points.get( 1 ).getBugCount() );
+	}
+
+	@Test
+	public void testMissingOrForeignIndexIsNotRead() throws Exception{
+		File file = new File( folder.getRoot(), ClangScanBuildTrendIndex.FILENAME );
+		ClangScanBuildTrendIndex index = new ClangScanBuildTrendIndex( file );
+		Assert.assertNull( index.read() );
+
+		FileOutputStream out = new FileOutputStream( file );
+		try{
+			out.write( "not an index".getBytes( "UTF-8" ) );
+		}finally{
+			out.close();
+		}
+		Assert.assertNull( index.read() );
+
+		// a deletion is not recorded without an index
+		index.remove( 1 );
+		Assert.assertEquals( 12, file.length() );
+	}
+
+	@Test
+	public void testUnknownCategoriesAreCountedAsOther(){
+		Assert.assertEquals( 0, ClangScanBuildTrendIndex.categoryIndex( "logic error" ) );
+		Assert.assertEquals( ClangScanBuildTrendIndex.CATEGORIES.length - 1, ClangScanBuildTrendIndex.categoryIndex( "Optimization" ) );
+		Assert.assertEquals( ClangScanBuildTrendIndex.CATEGORIES.length - 1, ClangScanBuildTrendIndex.categoryIndex( null ) );
+	}
+
+	@Test
+	public void testCheckerPackagesAreCountedInTheirCategory(){
+		Assert.assertEquals( ClangScanBuildTrendIndex.categoryIndex( "Dead store" ), ClangScanBuildTrendIndex.categoryIndex( "deadcode" ) );
+		Assert.assertEquals( ClangScanBuildTrendIndex.categoryIndex( "Logic error" ), ClangScanBuildTrendIndex.categoryIndex( "core" ) );
+	}
+
+	private GraphPoint point( int buildNumber, int bugCount ){
+		int[] categoryCounts = new int[ ClangScanBuildTrendIndex.CATEGORIES.length ];
+		categoryCounts[ ClangScanBuildTrendIndex.categoryIndex( "Dead store" ) ] = 2;
+		return new GraphPoint( buildNumber, 1000L * buildNumber, bugCount, 7, 5, categoryCounts );
+	}
+
+}
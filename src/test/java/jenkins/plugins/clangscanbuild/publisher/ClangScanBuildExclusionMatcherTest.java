@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.publisher;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClangScanBuildExclusionMatcherTest {
+
+	@Test
+	public void testEmptySettingMatchesNothing(){
+		Assert.assertTrue( ClangScanBuildExclusionMatcher.compile( "" ).isEmpty() );
+		Assert.assertTrue( ClangScanBuildExclusionMatcher.compile( null ).isEmpty() );
+		Assert.assertTrue( ClangScanBuildExclusionMatcher.compile( " , ," ).isEmpty() );
+		Assert.assertNull( ClangScanBuildExclusionMatcher.compile( "" ).match( "/src/main.m" ) );
+	}
+
+	@Test
+	public void testMatchesSubstringsIgnoringCase(){
+		ClangScanBuildExclusionMatcher matcher = ClangScanBuildExclusionMatcher.compile( "Pods, ThirdParty/ ,vendor" );
+		Assert.assertEquals( "pods", matcher.match( "/MyApp/pods/AFNetworking/AFHTTPClient.m" ) );
+		Assert.assertEquals( "thirdparty/", matcher.match( "/MyApp/THIRDPARTY/lib.c" ) );
+		Assert.assertEquals( "vendor", matcher.match( "/vendor.c" ) );
+		Assert.assertNull( matcher.match( "/MyApp/Classes/ThirdParty.m" ) );
+		Assert.assertNull( matcher.match( null ) );
+	}
+
+	@Test
+	public void testMatchesOverlappingSubstrings(){
+		// 'abcd' fails on 'x' and has to fall back into 'bcx'
+		ClangScanBuildExclusionMatcher matcher = ClangScanBuildExclusionMatcher.compile( "abcd,bcx,bd" );
+		Assert.assertEquals( "bcx", matcher.match( "/abcx" ) );
+		Assert.assertEquals( "bd", matcher.match( "/abbd" ) );
+		Assert.assertNull( matcher.match( "/abcbc" ) );
+
+		matcher = ClangScanBuildExclusionMatcher.compile( "she,he,hers" );
+		Assert.assertEquals( "she", matcher.match( "/ushers" ) );
+		Assert.assertEquals( "he", matcher.match( "/uhers" ) );
+	}
+
+	@Test
+	public void testMatchesGlobs(){
+		ClangScanBuildExclusionMatcher matcher = ClangScanBuildExclusionMatcher.compile( "glob:**/Generated/*.m" );
+		Assert.assertEquals( "glob:**/Generated/*.m", matcher.match( "/App/generated/Model.m" ) );
+		Assert.assertNull( matcher.match( "/App/Generated/Sub/Model.m" ) );
+		Assert.assertNull( matcher.match( "/App/Generated/Model.mm" ) );
+	}
+
+	@Test
+	public void testMatchesRegularExpressions(){
+		ClangScanBuildExclusionMatcher matcher = ClangScanBuildExclusionMatcher.compile( "lib, regex:test[0-9]+\\.c$" );
+		Assert.assertEquals( "regex:test[0-9]+\\.c$", matcher.match( "/src/Test12.c" ) );
+		Assert.assertEquals( "lib", matcher.match( "/src/Test12.c/lib.h" ) );
+		Assert.assertNull( matcher.match( "/src/test.c" ) );
+	}
+
+	@Test
+	public void testInvalidPatternNamesTheEntry(){
+		try{
+			ClangScanBuildExclusionMatcher.compile( "Pods, regex:test[0-9" );
+			Assert.fail( "An unclosed character class must not compile" );
+		}catch( IllegalArgumentException e ){
+			Assert.assertTrue( e.getMessage(), e.getMessage().startsWith( "Invalid exclusion pattern 'regex:test[0-9':" ) );
+		}
+	}
+
+}
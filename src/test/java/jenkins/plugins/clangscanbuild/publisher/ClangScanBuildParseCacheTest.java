@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.publisher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildBug;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClangScanBuildParseCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testParsedReportsAreCachedAcrossBuilds() throws Exception{
+		ClangScanBuildParseCache firstBuild = ClangScanBuildParseCache.load( folder.getRoot(), 10 );
+		List<ClangScanBuildReportResult> results = new ArrayList<ClangScanBuildReportResult>();
+		results.add( new ClangScanBuildReportResult( "aaa", "report-1.html", buildClangScanBuildBug( "one", "report-1.html" ) ) );
+		firstBuild.resolve( results );
+		firstBuild.save();
+
+		Assert.assertEquals( 0, firstBuild.getHits() );
+		Assert.assertEquals( 1, firstBuild.getMisses() );
+
+		ClangScanBuildParseCache secondBuild = ClangScanBuildParseCache.load( folder.getRoot(), 10 );
+		Assert.assertTrue( secondBuild.getKeys().contains( "aaa" ) );
+
+		results.clear();
+		results.add( new ClangScanBuildReportResult( "aaa", "report-2.html", null ) );
+		List<ClangScanBuildBug> bugs = secondBuild.resolve( results );
+
+		Assert.assertEquals( 1, secondBuild.getHits() );
+		Assert.assertEquals( 0, secondBuild.getMisses() );
+		Assert.assertEquals( "one", bugs.get( 0 ).getBugDescription() );
+		Assert.assertEquals( "report-2.html", bugs.get( 0 ).getReportFile() );
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEntriesAreEvicted() throws Exception{
+		ClangScanBuildParseCache cache = ClangScanBuildParseCache.load( folder.getRoot(), 2 );
+		List<ClangScanBuildReportResult> results = new ArrayList<ClangScanBuildReportResult>();
+		results.add( new ClangScanBuildReportResult( "aaa", "report-1.html", buildClangScanBuildBug( "one", "report-1.html" ) ) );
+		results.add( new ClangScanBuildReportResult( "bbb", "report-2.html", buildClangScanBuildBug( "two", "report-2.html" ) ) );
+		cache.resolve( results );
+
+		results.clear();
+		results.add( new ClangScanBuildReportResult( "aaa", "report-1.html", null ) );
+		results.add( new ClangScanBuildReportResult( "ccc", "report-3.html", buildClangScanBuildBug( "three", "report-3.html" ) ) );
+		cache.resolve( results );
+
+		Assert.assertTrue( cache.getKeys().contains( "aaa" ) );
+		Assert.assertFalse( cache.getKeys().contains( "bbb" ) );
+		Assert.assertTrue( cache.getKeys().contains( "ccc" ) );
+	}
+
+	@Test
+	public void testCachedBugsAreNotShared() throws Exception{
+		ClangScanBuildParseCache cache = ClangScanBuildParseCache.load( folder.getRoot(), 10 );
+		List<ClangScanBuildReportResult> results = new ArrayList<ClangScanBuildReportResult>();
+		results.add( new ClangScanBuildReportResult( "aaa", "report-1.html", buildClangScanBuildBug( "one", "report-1.html" ) ) );
+		cache.resolve( results );
+
+		results.clear();
+		results.add( new ClangScanBuildReportResult( "aaa", "report-2.html", null ) );
+		cache.resolve( results ).get( 0 ).setNewBug( true );
+
+		Assert.assertFalse( cache.resolve( results ).get( 0 ).isNewBug() );
+	}
+
+	private ClangScanBuildBug buildClangScanBuildBug( String description, String reportFile ){
+		ClangScanBuildBug bug = new ClangScanBuildBug();
+		bug.setBugDescription( description );
+		bug.setReportFile( reportFile );
+		return bug;
+	}
+
+}
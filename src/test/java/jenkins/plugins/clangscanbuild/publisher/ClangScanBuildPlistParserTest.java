@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.publisher;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildBug;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClangScanBuildPlistParserTest {
+
+	private static final String PLIST =
+		"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+		"<!DOCTYPE plist PUBLIC \"-//Apple//DTD PLIST 1.0//EN\" \"http://www.apple.com/DTDs/PropertyList-1.0.dtd\">\n" +
+		"<plist version=\"1.0\">\n" +
+		"<dict>\n" +
+		" <key>clang_version</key>\n" +
+		" <string>clang version 3.8.0</string>\n" +
+		" <key>diagnostics</key>\n" +
+		" <array>\n" +
+		"  <dict>\n" +
+		"   <key>path</key>\n" +
+		"   <array>\n" +
+		"    <dict>\n" +
+		"     <key>kind</key><string>control</string>\n" +
+		"     <key>edges</key><array><dict><key>start</key><array/></dict></array>\n" +
+		"    </dict>\n" +
+		"    <dict>\n" +
+		"     <key>kind</key><string>event</string>\n" +
+		"     <key>message</key><string>Value stored to 'x' is never read</string>\n" +
+		"    </dict>\n" +
+		"   </array>\n" +
+		"   <key>description</key><string>Value stored to 'x' is never read</string>\n" +
+		"   <key>category</key><string>Dead store</string>\n" +
+		"   <key>type</key><string>Dead assignment</string>\n" +
+		"   <key>check_name</key><string>deadcode.DeadStores</string>\n" +
+		"   <key>issue_hash_content_of_line_in_context</key><string>d41d8cd98f00b204e9800998ecf8427e</string>\n" +
+		"   <key>issue_context_kind</key><string>function</string>\n" +
+		"   <key>issue_context</key><string>main</string>\n" +
+		"   <key>issue_hash_function_offset</key><string>3</string>\n" +
+		"   <key>location</key>\n" +
+		"   <dict>\n" +
+		"    <key>line</key><integer>12</integer>\n" +
+		"    <key>col</key><integer>5</integer>\n" +
+		"    <key>file</key><integer>1</integer>\n" +
+		"   </dict>\n" +
+		"   <key>HTMLDiagnostics_files</key>\n" +
+		"   <array>\n" +
+		"    <string>report-1a2b3c.html</string>\n" +
+		"   </array>\n" +
+		"  </dict>\n" +
+		"  <dict>\n" +
+		"   <key>description</key><string>Potential leak of an object</string>\n" +
+		"   <key>location</key>\n" +
+		"   <dict>\n" +
+		"    <key>file</key><integer>0</integer>\n" +
+		"   </dict>\n" +
+		"  </dict>\n" +
+		" </array>\n" +
+		" <key>files</key>\n" +
+		" <array>\n" +
+		"  <string>/workspace/Classes/Bar.m</string>\n" +
+		"  <string>/workspace/Classes/Foo.m</string>\n" +
+		" </array>\n" +
+		"</dict>\n" +
+		"</plist>\n";
+
+	private ClangScanBuildPlistParser classUnderTest = new ClangScanBuildPlistParser();
+
+	@Test
+	public void testReadsDiagnostics() throws Exception{
+		List<ClangScanBuildBug> bugs = classUnderTest.parse( new ByteArrayInputStream( PLIST.getBytes( "UTF-8" ) ) );
+
+		Assert.assertEquals( 2, bugs.size() );
+
+		ClangScanBuildBug bug = bugs.get( 0 );
+		Assert.assertEquals( "Value stored to 'x' is never read", bug.getBugDescription() );
+		Assert.assertEquals( "Dead store", bug.getBugCategory() );
+		Assert.assertEquals( "Dead assignment", bug.getBugType() );
+		Assert.assertEquals( "deadcode.DeadStores", bug.getCheckerName() );
+		Assert.assertEquals( "main", bug.getFunctionName() );
+		Assert.assertEquals( "/workspace/Classes/Foo.m", bug.getSourceFile() );
+		Assert.assertEquals( 12, bug.getBugLine() );
+		Assert.assertEquals( 5, bug.getBugColumn() );
+		Assert.assertEquals( 1, bug.getBugPathLength() );
+		Assert.assertEquals( "report-1a2b3c.html", bug.getReportFile() );
+		Assert.assertEquals( ClangScanBuildBug.parseIssueHash( "d41d8cd98f00b204e9800998ecf8427e" ), bug.getIssueHash() );
+
+		Assert.assertEquals( "/workspace/Classes/Bar.m", bugs.get( 1 ).getSourceFile() );
+		Assert.assertNull( bugs.get( 1 ).getReportFile() );
+	}
+
+	@Test( expected = java.io.IOException.class )
+	public void testRejectsDocumentsThatAreNotPlists() throws Exception{
+		classUnderTest.parse( new ByteArrayInputStream( "<html><body/></html>".getBytes( "UTF-8" ) ) );
+	}
+
+}
@@ -21,8 +21,12 @@
  */
 package jenkins.plugins.clangscanbuild.publisher;
 
+import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import hudson.util.FormValidation;
 
+import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.jvnet.hudson.test.JenkinsRule;
@@ -40,6 +44,12 @@ public class ClangScanBuildPublisherTest {
 		FreeStyleProject p = j.createFreeStyleProject();
 		
 		ClangScanBuildPublisher publisherBefore = new ClangScanBuildPublisher( true, 45, "Pods", "somereportfoldername");
+		publisherBefore.setParseParallelism( 4 );
+		publisherBefore.setParseCacheSize( 1000 );
+		publisherBefore.setReportFormat( ClangScanBuildReportCollector.FORMAT_PLIST );
+		publisherBefore.setTransferCompressionLevel( 6 );
+		publisherBefore.setDeduplicateReports( true );
+		publisherBefore.setCompressReports( true );
 		p.getPublishersList().add( publisherBefore );
 
 		HtmlForm form = j.createWebClient().getPage( p, "configure" ).getFormByName( "config" );
@@ -47,7 +57,23 @@ public class ClangScanBuildPublisherTest {
 
 		ClangScanBuildPublisher publisherAfter = p.getPublishersList().get( ClangScanBuildPublisher.class );
 
-		j.assertEqualBeans( publisherBefore, publisherAfter, "bugThreshold,markBuildUnstableWhenThresholdIsExceeded,clangexcludedpaths,reportFolderName" );
+		j.assertEqualBeans( publisherBefore, publisherAfter, "bugThreshold,markBuildUnstableWhenThresholdIsExceeded,clangexcludedpaths,reportFolderName,parseParallelism,parseCacheSize,reportFormat,transferCompressionLevel,deduplicateReports,compressReports" );
 	}
-	
+
+	@Test
+	public void testCheckExcludedPaths(){
+		ClangScanBuildPublisherDescriptor descriptor = j.jenkins.getDescriptorByType( ClangScanBuildPublisherDescriptor.class );
+		Assert.assertEquals( FormValidation.Kind.OK, descriptor.doCheckClangexcludedpaths( "Pods, glob:**/Generated/*.m, regex:test[0-9]+\\.c$" ).kind );
+		Assert.assertEquals( FormValidation.Kind.ERROR, descriptor.doCheckClangexcludedpaths( "Pods, regex:test[0-9" ).kind );
+	}
+
+	@Test
+	public void testInvalidExclusionPatternFailsTheBuild() throws Exception{
+		FreeStyleProject p = j.createFreeStyleProject();
+		p.getPublishersList().add( new ClangScanBuildPublisher( false, 0, "regex:test[0-9", "clangScanBuildReports" ) );
+
+		FreeStyleBuild build = j.assertBuildStatus( Result.FAILURE, p.scheduleBuild2( 0 ).get() );
+		j.assertLogContains( "Invalid exclusion pattern 'regex:test[0-9'", build );
+	}
+
 }
@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.publisher;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClangScanBuildReportCollectorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testKnownReportsAreNotParsed() throws Exception{
+		File report = writeReport( "report-1.html", "Value stored to 'x' is never read" );
+
+		List<ClangScanBuildReportResult> results = collect( Collections.<String>emptySet() );
+		Assert.assertEquals( 1, results.size() );
+		Assert.assertEquals( "Value stored to 'x' is never read", results.get( 0 ).getBug().getBugDescription() );
+		Assert.assertEquals( "Classes/Foo.m", results.get( 0 ).getBug().getSourceFile() );
+
+		String key = results.get( 0 ).getKey();
+		results = collect( Collections.singleton( key ) );
+		Assert.assertEquals( 1, results.size() );
+		Assert.assertNull( results.get( 0 ).getBug() );
+		Assert.assertEquals( key, results.get( 0 ).getKey() );
+		Assert.assertEquals( "report-1.html", results.get( 0 ).getReportFile() );
+
+		// a report written again has another modification time and so another key
+		writeReport( "report-1.html", "Value stored to 'y' is never read" );
+		report.setLastModified( report.lastModified() + 2000 );
+		results = collect( Collections.singleton( key ) );
+		Assert.assertEquals( "Value stored to 'y' is never read", results.get( 0 ).getBug().getBugDescription() );
+	}
+
+	private List<ClangScanBuildReportResult> collect( Set<String> knownKeys ) throws Exception{
+		ClangScanBuildReportCollector collector = new ClangScanBuildReportCollector( "/workspace/", ClangScanBuildReportCollector.FORMAT_HTML, 1, knownKeys );
+		return collector.invoke( folder.getRoot(), null );
+	}
+
+	private File writeReport( String name, String description ) throws IOException{
+		File report = new File( folder.getRoot(), name );
+		FileOutputStream out = new FileOutputStream( report );
+		try{
+			out.write( ( "<html><head></head><body>\n" +
+				"<!-- BUGDESC " + description + " -->\n" +
+				"<!-- BUGTYPE Dead assignment -->\n" +
+				"<!-- BUGCATEGORY Dead store -->\n" +
+				"<!-- BUGFILE /workspace/Classes/Foo.m -->\n" +
+				"<!-- BUGLINE 12 -->\n" +
+				"<!-- BUGMETAEND -->\n" ).getBytes( "UTF-8" ) );
+		}finally{
+			out.close();
+		}
+		return report;
+	}
+
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.publisher;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClangScanBuildReportParserTest {
+
+	private ClangScanBuildReportParser classUnderTest = new ClangScanBuildReportParser();
+
+	@Test
+	public void testReadsMarkers() throws Exception{
+		Map<String,String> markers = classUnderTest.readMarkers( stream( buildReport( "" ) ) );
+
+		Assert.assertEquals( "Value stored to 'x' is never read", markers.get( ClangScanBuildReportParser.BUGDESC ) );
+		Assert.assertEquals( "Dead assignment", markers.get( ClangScanBuildReportParser.BUGTYPE ) );
+		Assert.assertEquals( "Dead store", markers.get( ClangScanBuildReportParser.BUGCATEGORY ) );
+		Assert.assertEquals( "/workspace/Classes/Foo.m", markers.get( ClangScanBuildReportParser.BUGFILE ) );
+		Assert.assertEquals( "main", markers.get( ClangScanBuildReportParser.FUNCTIONNAME ) );
+		Assert.assertEquals( "12", markers.get( ClangScanBuildReportParser.BUGLINE ) );
+		Assert.assertEquals( "5", markers.get( ClangScanBuildReportParser.BUGCOLUMN ) );
+		Assert.assertEquals( "1", markers.get( ClangScanBuildReportParser.BUGPATHLENGTH ) );
+	}
+
+	@Test
+	public void testIgnoresCommentsThatAreNotMarkers() throws Exception{
+		Map<String,String> markers = classUnderTest.readMarkers( stream( "<html><!-- just a comment --><!--BUGTYPE--><!-- BUGTYPE Leak -->" ) );
+
+		Assert.assertEquals( 1, markers.size() );
+		Assert.assertEquals( "Leak", markers.get( ClangScanBuildReportParser.BUGTYPE ) );
+	}
+
+	@Test
+	public void testMarkersSpanningBufferBoundaries() throws Exception{
+		StringBuilder padding = new StringBuilder();
+		for( int i = 0; i < 8190; i++ ) padding.append( 'x' );
+
+		Map<String,String> markers = classUnderTest.readMarkers( stream( buildReport( padding.toString() ) ) );
+
+		Assert.assertEquals( "Dead assignment", markers.get( ClangScanBuildReportParser.BUGTYPE ) );
+		Assert.assertEquals( "1", markers.get( ClangScanBuildReportParser.BUGPATHLENGTH ) );
+	}
+
+	@Test
+	public void testStopsReadingAtEndOfMarkerBlock() throws Exception{
+		CountingReader reader = new CountingReader( buildReport( "" ) + "<!-- BUGTYPE Ignored -->" + bigSource() );
+
+		Map<String,String> markers = classUnderTest.readMarkers( reader );
+
+		Assert.assertEquals( "Dead assignment", markers.get( ClangScanBuildReportParser.BUGTYPE ) );
+		Assert.assertTrue( "Report was read past the marker block", reader.charsRead < 20 * 1024 );
+	}
+
+	@Test
+	public void testStopsReadingWhenFilterRejectsMarker() throws Exception{
+		ClangScanBuildReportParser.MarkerFilter excludeFoo = new ClangScanBuildReportParser.MarkerFilter(){
+			public boolean accept( String key, String value ){
+				return !ClangScanBuildReportParser.BUGFILE.equals( key ) || !value.endsWith( "Foo.m" );
+			}
+		};
+
+		Assert.assertNull( classUnderTest.readMarkers( new StringReader( buildReport( "" ) ), excludeFoo ) );
+
+		Map<String,String> markers = classUnderTest.readMarkers( new StringReader( buildReport( "" ).replace( "Foo.m", "Bar.m" ) ), excludeFoo );
+		Assert.assertEquals( "/workspace/Classes/Bar.m", markers.get( ClangScanBuildReportParser.BUGFILE ) );
+		Assert.assertEquals( "5", markers.get( ClangScanBuildReportParser.BUGCOLUMN ) );
+	}
+
+	private String buildReport( String head ){
+		return "<html><head><style>" + head + "</style></head><body>\n" +
+			"<!-- BUGDESC Value stored to 'x' is never read -->\n" +
+			"<!-- BUGTYPE Dead assignment -->\n" +
+			"<!-- BUGCATEGORY Dead store -->\n" +
+			"<!-- BUGFILE /workspace/Classes/Foo.m -->\n" +
+			"<!-- FILENAME Foo.m -->\n" +
+			"<!-- FUNCTIONNAME main -->\n" +
+			"<!-- BUGLINE 12 -->\n" +
+			"<!-- BUGCOLUMN 5 -->\n" +
+			"<!-- BUGPATHLENGTH 1 -->\n" +
+			"<!-- BUGMETAEND -->\n";
+	}
+
+	private String bigSource(){
+		StringBuilder source = new StringBuilder();
+		for( int i = 0; i < 10000; i++ ) source.append( "<tr><td class=\"num\">" ).append( i ).append( "</td><td class=\"line\">int x = 0;</td></tr>\n" );
+		return source.toString();
+	}
+
+	private InputStream stream( String contents ) throws IOException {
+		return new ByteArrayInputStream( contents.getBytes( "UTF-8" ) );
+	}
+
+	private static class CountingReader extends StringReader{
+
+		private int charsRead = 0;
+
+		public CountingReader( String contents ){
+			super( contents );
+		}
+
+		@Override
+		public int read( char[] buffer, int offset, int length ) throws IOException {
+			int read = super.read( buffer, offset, length );
+			if( read > 0 ) charsRead += read;
+			return read;
+		}
+
+	}
+
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.publisher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClangScanBuildReportRelocatorTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testMovesContentsOfDatedFolderToParent() throws Exception{
+		File reportsFolder = temporaryFolder.newFolder( "clangScanBuildReports" );
+		File datedFolder = new File( reportsFolder, "2016-01-01-120000-1234-1" );
+		write( new File( datedFolder, "report-abc.html" ), "abc" );
+		write( new File( datedFolder, "index.html" ), "index" );
+		write( new File( datedFolder, "StaticAnalyzer/Foo/report-def.html" ), "def" );
+
+		int copied = new ClangScanBuildReportRelocator().invoke( datedFolder, null );
+
+		Assert.assertEquals( 0, copied );
+		Assert.assertFalse( datedFolder.exists() );
+		Assert.assertEquals( "abc", read( new File( reportsFolder, "report-abc.html" ) ) );
+		Assert.assertEquals( "index", read( new File( reportsFolder, "index.html" ) ) );
+		Assert.assertEquals( "def", read( new File( reportsFolder, "StaticAnalyzer/Foo/report-def.html" ) ) );
+	}
+
+	@Test
+	public void testReplacesFilesAndMergesFoldersAlreadyInParent() throws Exception{
+		File reportsFolder = temporaryFolder.newFolder( "clangScanBuildReports" );
+		write( new File( reportsFolder, "index.html" ), "old index" );
+		write( new File( reportsFolder, "StaticAnalyzer/Bar/report-old.html" ), "old" );
+
+		File datedFolder = new File( reportsFolder, "2016-01-01-120000-1234-1" );
+		write( new File( datedFolder, "index.html" ), "index" );
+		write( new File( datedFolder, "StaticAnalyzer/Foo/report-def.html" ), "def" );
+
+		new ClangScanBuildReportRelocator().invoke( datedFolder, null );
+
+		Assert.assertFalse( datedFolder.exists() );
+		Assert.assertEquals( "index", read( new File( reportsFolder, "index.html" ) ) );
+		Assert.assertEquals( "old", read( new File( reportsFolder, "StaticAnalyzer/Bar/report-old.html" ) ) );
+		Assert.assertEquals( "def", read( new File( reportsFolder, "StaticAnalyzer/Foo/report-def.html" ) ) );
+	}
+
+	private void write( File file, String contents ) throws IOException {
+		file.getParentFile().mkdirs();
+		Files.write( file.toPath(), contents.getBytes( "UTF-8" ) );
+	}
+
+	private String read( File file ) throws IOException {
+		return new String( Files.readAllBytes( file.toPath() ), "UTF-8" );
+	}
+
+}
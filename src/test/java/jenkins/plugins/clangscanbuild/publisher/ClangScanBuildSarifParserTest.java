@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.publisher;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildBug;
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildBugSummary;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClangScanBuildSarifParserTest {
+
+	private static final String SARIF =
+		"{\n" +
+		"  \"$schema\": \"https://docs.oasis-open.org/sarif/sarif/v2.1.0/cos02/schemas/sarif-schema-2.1.0.json\",\n" +
+		"  \"runs\": [\n" +
+		"    {\n" +
+		"      \"artifacts\": [\n" +
+		"        { \"length\": 120, \"location\": { \"index\": 0, \"uri\": \"file:///workspace/Classes/Foo.m\" }, \"mimeType\": \"text/plain\", \"roles\": [ \"resultFile\" ] }\n" +
+		"      ],\n" +
+		"      \"columnKind\": \"unicodeCodePoints\",\n" +
+		"      \"results\": [\n" +
+		"        {\n" +
+		"          \"codeFlows\": [ { \"threadFlows\": [ { \"locations\": [\n" +
+		"            { \"importance\": \"essential\", \"location\": { \"message\": { \"text\": \"Value assigned to 'x'\" } } },\n" +
+		"            { \"importance\": \"essential\", \"location\": { \"message\": { \"text\": \"Value stored to 'x' is never read\" } } }\n" +
+		"          ] } ] } ],\n" +
+		"          \"level\": \"warning\",\n" +
+		"          \"locations\": [ { \"physicalLocation\": { \"artifactLocation\": { \"index\": 0 }, \"region\": { \"endColumn\": 6, \"startColumn\": 5, \"startLine\": 12 } } } ],\n" +
+		"          \"message\": { \"text\": \"Value stored to 'x' is never read\" },\n" +
+		"          \"partialFingerprints\": { \"clang/issueHash/v1\": \"d41d8cd98f00b204e9800998ecf8427e\" },\n" +
+		"          \"ruleId\": \"deadcode.DeadStores\",\n" +
+		"          \"ruleIndex\": 0\n" +
+		"        },\n" +
+		"        {\n" +
+		"          \"locations\": [ { \"physicalLocation\": { \"artifactLocation\": { \"uri\": \"file:///workspace/Classes/Bar%20Baz.m\" }, \"region\": { \"startLine\": 3 } } } ],\n" +
+		"          \"message\": { \"text\": \"Potential leak of \\\"object\\\"\\u0021\" },\n" +
+		"          \"ruleId\": \"osx.cocoa.RetainCount\",\n" +
+		"          \"suppressed\": false,\n" +
+		"          \"rank\": null,\n" +
+		"          \"score\": -1.5e3\n" +
+		"        }\n" +
+		"      ],\n" +
+		"      \"tool\": { \"driver\": { \"name\": \"clang\", \"rules\": [ { \"id\": \"deadcode.DeadStores\" } ] } }\n" +
+		"    }\n" +
+		"  ],\n" +
+		"  \"version\": \"2.1.0\"\n" +
+		"}\n";
+
+	private ClangScanBuildSarifParser classUnderTest = new ClangScanBuildSarifParser();
+
+	@Test
+	public void testReadsResults() throws Exception{
+		List<ClangScanBuildBug> bugs = classUnderTest.parse( new ByteArrayInputStream( SARIF.getBytes( "UTF-8" ) ) );
+
+		Assert.assertEquals( 2, bugs.size() );
+
+		ClangScanBuildBug bug = bugs.get( 0 );
+		Assert.assertEquals( "Value stored to 'x' is never read", bug.getBugDescription() );
+		Assert.assertEquals( "Dead store", bug.getBugCategory() );
+		Assert.assertEquals( "deadcode.DeadStores", bug.getBugType() );
+		Assert.assertEquals( "deadcode.DeadStores", bug.getCheckerName() );
+		Assert.assertEquals( "/workspace/Classes/Foo.m", bug.getSourceFile() );
+		Assert.assertEquals( 12, bug.getBugLine() );
+		Assert.assertEquals( 5, bug.getBugColumn() );
+		Assert.assertEquals( 2, bug.getBugPathLength() );
+		Assert.assertEquals( ClangScanBuildBug.parseIssueHash( "d41d8cd98f00b204e9800998ecf8427e" ), bug.getIssueHash() );
+
+		bug = bugs.get( 1 );
+		Assert.assertEquals( "Potential leak of \"object\"!", bug.getBugDescription() );
+		Assert.assertEquals( "Core Foundation/Objective-C", bug.getBugCategory() );
+		Assert.assertEquals( "/workspace/Classes/Bar Baz.m", bug.getSourceFile() );
+		Assert.assertEquals( 0, bug.getIssueHash() );
+	}
+
+	@Test
+	public void testReadsResultsAcrossBufferBoundaries() throws Exception{
+		StringBuilder sarif = new StringBuilder( "{\"runs\":[{\"results\":[" );
+		for( int i = 0; i < 2000; i++ ){
+			if( i > 0 ) sarif.append( ',' );
+			sarif.append( "{\"message\":{\"text\":\"bug " ).append( i ).append( "\"},\"ruleId\":\"core.NullDereference\",\"ruleIndex\":" ).append( i ).append( '}' );
+		}
+		sarif.append( "]}]}" );
+
+		List<ClangScanBuildBug> bugs = classUnderTest.parse( new ByteArrayInputStream( sarif.toString().getBytes( "UTF-8" ) ) );
+
+		Assert.assertEquals( 2000, bugs.size() );
+		for( int i = 0; i < 2000; i++ ){
+			Assert.assertEquals( "bug " + i, bugs.get( i ).getBugDescription() );
+		}
+	}
+
+	@Test
+	public void testFindingsInTheSameFileAreKeptApart() throws Exception{
+		String result = "{\"locations\":[{\"physicalLocation\":{\"artifactLocation\":{\"uri\":\"file:///workspace/Classes/Foo.m\"},\"region\":{\"startLine\":%d}}}]," +
+				"\"message\":{\"text\":\"Value stored to 'x' is never read\"},\"ruleId\":\"deadcode.DeadStores\"}";
+		String sarif = "{\"runs\":[{\"results\":[" + String.format( result, 12 ) + "," + String.format( result, 40 ) + "]}]}";
+
+		List<ClangScanBuildBug> bugs = classUnderTest.parse( new ByteArrayInputStream( sarif.getBytes( "UTF-8" ) ) );
+		ClangScanBuildBugSummary summary = new ClangScanBuildBugSummary( 1 );
+		summary.addBugs( bugs );
+
+		Assert.assertEquals( 2, summary.getBugCount() );
+		Assert.assertFalse( bugs.get( 0 ).equals( bugs.get( 1 ) ) );
+	}
+
+	@Test( expected = java.io.IOException.class )
+	public void testRejectsTruncatedDocuments() throws Exception{
+		classUnderTest.parse( new ByteArrayInputStream( SARIF.substring( 0, SARIF.length() / 2 ).getBytes( "UTF-8" ) ) );
+	}
+
+}
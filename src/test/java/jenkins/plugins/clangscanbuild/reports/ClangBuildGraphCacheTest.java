@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2011 Joshua Kennedy, http://deadmeta4.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.clangscanbuild.reports;
+
+import hudson.model.FreeStyleProject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jenkins.plugins.clangscanbuild.history.ClangScanBuildTrendIndex;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class ClangBuildGraphCacheTest {
+
+	private ClangBuildGraphCache classUnderTest = new ClangBuildGraphCache();
+
+	@Rule
+	public JenkinsRule j = new JenkinsRule();
+
+	@Test
+	public void testUnchangedTrendIsRenderedOnce() throws Exception{
+		FreeStyleProject project = j.createFreeStyleProject( "Test Project" );
+		project.scheduleBuild2(0).get();
+		List<GraphPoint> points = points( 3 );
+
+		RenderedGraph first = classUnderTest.get( project, points, ClangBuildGraph.SERIES_TOTAL, 350, 150 );
+		RenderedGraph second = classUnderTest.get( project, points, ClangBuildGraph.SERIES_TOTAL, 350, 150 );
+
+		Assert.assertSame( first, second );
+		Assert.assertEquals( 1, classUnderTest.getMisses() );
+		Assert.assertEquals( 1, classUnderTest.getHits() );
+		Assert.assertTrue( first.getMap().contains( "<map" ) );
+	}
+
+	@Test
+	public void testCompletedBuildRendersAgain() throws Exception{
+		FreeStyleProject project = j.createFreeStyleProject( "Test Project" );
+		project.scheduleBuild2(0).get();
+		List<GraphPoint> points = points( 3 );
+		classUnderTest.get( project, points, ClangBuildGraph.SERIES_TOTAL, 350, 150 );
+
+		project.scheduleBuild2(0).get();
+		classUnderTest.get( project, points, ClangBuildGraph.SERIES_TOTAL, 350, 150 );
+
+		Assert.assertEquals( 2, classUnderTest.getMisses() );
+	}
+
+	@Test
+	public void testSizesAreCachedSeparately() throws Exception{
+		FreeStyleProject project = j.createFreeStyleProject( "Test Project" );
+		List<GraphPoint> points = points( 3 );
+
+		RenderedGraph small = classUnderTest.get( project, points, ClangBuildGraph.SERIES_TOTAL, 350, 150 );
+		RenderedGraph large = classUnderTest.get( project, points, ClangBuildGraph.SERIES_TOTAL, 800, 600 );
+
+		Assert.assertNotEquals( small.getPngETag(), large.getPngETag() );
+		Assert.assertEquals( 2, classUnderTest.getSize() );
+	}
+
+	@Test
+	public void testInvalidateDropsOnlyThatProject() throws Exception{
+		FreeStyleProject project = j.createFreeStyleProject( "Test Project" );
+		FreeStyleProject otherProject = j.createFreeStyleProject( "Test Project 2" );
+		List<GraphPoint> points = points( 3 );
+		classUnderTest.get( project, points, ClangBuildGraph.SERIES_TOTAL, 350, 150 );
+		classUnderTest.get( project, points, ClangBuildGraph.SERIES_TOTAL, 800, 600 );
+		classUnderTest.get( otherProject, points, ClangBuildGraph.SERIES_TOTAL, 350, 150 );
+
+		classUnderTest.invalidate( project.getFullName() );
+
+		Assert.assertEquals( 1, classUnderTest.getSize() );
+	}
+
+	@Test
+	public void testSeriesAreCachedSeparately() throws Exception{
+		FreeStyleProject project = j.createFreeStyleProject( "Test Project" );
+		List<GraphPoint> points = points( 3 );
+
+		classUnderTest.get( project, points, ClangBuildGraph.SERIES_TOTAL, 350, 150 );
+		RenderedGraph categories = classUnderTest.get( project, points, ClangBuildGraph.SERIES_CATEGORY, 350, 150 );
+		RenderedGraph newAndFixed = classUnderTest.get( project, points, ClangBuildGraph.SERIES_NEW_AND_FIXED, 350, 150 );
+
+		Assert.assertEquals( 3, classUnderTest.getSize() );
+		Assert.assertTrue( categories.getMap().contains( "Logic error" ) );
+		Assert.assertTrue( newAndFixed.getMap().contains( "Fixed" ) );
+	}
+
+	private List<GraphPoint> points( int count ){
+		List<GraphPoint> points = new ArrayList<GraphPoint>();
+		for( int i = count; i > 0; i-- ){
+			int[] categoryCounts = new int[ ClangScanBuildTrendIndex.CATEGORIES.length ];
+			categoryCounts[ ClangScanBuildTrendIndex.categoryIndex( "Logic error" ) ] = i * 8;
+			categoryCounts[ ClangScanBuildTrendIndex.categoryIndex( "Dead store" ) ] = i * 2;
+			points.add( new GraphPoint( i, 1000L * i, i * 10, i, 1, categoryCounts ) );
+		}
+		return points;
+	}
+
+}